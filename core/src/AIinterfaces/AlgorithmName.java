@@ -28,4 +28,11 @@ public enum AlgorithmName {
      * @return The value of the Enum
      */
     public int getValue(){ return this.value;}
+
+    /**
+     * Whether the algorithm evolves a population of networks, which is what lets it migrate
+     * between islands, be played out by evaluation workers and be saved to checkpoints.
+     * @return True for NEAT and HyperNEAT, false for SUNA.
+     */
+    public boolean hasNetworkPopulation(){ return this != SUNA;}
 }
@@ -0,0 +1,65 @@
+package AIinterfaces;
+
+import AIinterfaces.NetworkIF.NetworkIF;
+
+import java.util.Arrays;
+
+/**
+ * Remembers which species each organism was found to be compatible with, so the same organism
+ * does not have to be compared against the same species again. An entry only holds for the exact
+ * network it was worked out for and for the compatibility networks the species had at the time,
+ * so the cache has to be cleared whenever those change.
+ */
+public class CompatibilityCache {
+
+    /** Returned when the organism has not been compared against the species yet. */
+    public static final int UNKNOWN = -2;
+
+    /** Returned when the organism is not compatible with any of the species. */
+    public static final int NONE = -1;
+
+    /** The network each entry was worked out for, at the ID number of its agent. */
+    private final NetworkIF[] networks;
+
+    /** The index of the first species each agent is compatible with. */
+    private final int[] species;
+
+    /**
+     * Creates an empty cache for a population of agents numbered 0 up to the supplied size.
+     * @param size The number of agents in the population.
+     */
+    public CompatibilityCache(int size) {
+        networks = new NetworkIF[size];
+        species = new int[size];
+    }
+
+    /**
+     * Remembers the first species an agent's network is compatible with.
+     * @param agentID The ID number of the agent.
+     * @param network The network of the agent.
+     * @param speciesIndex The index of the first compatible species, or NONE.
+     */
+    public void put(int agentID, NetworkIF network, int speciesIndex) {
+        networks[agentID] = network;
+        species[agentID] = speciesIndex;
+    }
+
+    /**
+     * Returns the first species an agent's network is compatible with.
+     * @param agentID The ID number of the agent.
+     * @param network The network of the agent.
+     * @return The index of the first compatible species, NONE if there is none or UNKNOWN if
+     * this network has not been compared yet.
+     */
+    public int get(int agentID, NetworkIF network) {
+        if(network == null || networks[agentID] != network) {
+            return UNKNOWN;
+        }
+        return species[agentID];
+    }
+
+    /** Forgets every entry. */
+    public void clear() {
+        Arrays.fill(networks, null);
+    }
+}
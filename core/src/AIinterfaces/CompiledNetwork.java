@@ -0,0 +1,349 @@
+package AIinterfaces;
+
+import AIinterfaces.NetworkIF.NetworkIF;
+import AIinterfaces.NodeIF.HNNodeIF;
+import AIinterfaces.NodeIF.NEATNodeIF;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A network compiled into flat arrays for fast feed forwards. The nodes are numbered in the
+ * order they are activated (input -> bias -> hidden -> output) and the enabled outgoing links of
+ * each node are stored next to each other, so a feed forward is a single pass over primitive
+ * arrays that does not allocate. A compiled network no longer follows changes to the network it
+ * was compiled from, so it has to be compiled again once that network changes.
+ */
+public class CompiledNetwork {
+
+    /** Activation of a node on the input or bias layer, which passes on its value unchanged. */
+    private static final int NO_ACTIVATION = -1;
+
+    /** Activation of a node using the sigmoid function. */
+    private static final int SIGMOID = 0;
+
+    /** Activation of a node using the tanh function. */
+    private static final int TANH = 1;
+
+    /** Activation of a node using the parameterized ReLU function. */
+    private static final int PARAMETERIZED_RELU = 2;
+
+    /** Activation of a node using the swish function. */
+    private static final int SWISH = 3;
+
+    /**
+     * The most nodes a compiled network read by {@link #read(DataInput)} may have, far more than
+     * any evolved network grows, so a malformed input can not make it allocate without bound.
+     */
+    public static final int MAX_NODES = 1 << 16;
+
+    /** The most links a compiled network read by {@link #read(DataInput)} may have. */
+    public static final int MAX_LINKS = 1 << 20;
+
+    /** The number of input nodes, which are always the first nodes. */
+    private final int numInputs;
+
+    /** The index of the bias node. */
+    private final int biasIndex;
+
+    /** The value the bias node sends along its links. */
+    private final double biasValue;
+
+    /** The indices of the output nodes. */
+    private final int[] outputIndices;
+
+    /** The activation function of each node. */
+    private final int[] activations;
+
+    /** The slope of each node's parameterized ReLU. */
+    private final double[] slopes;
+
+    /** The index of the first outgoing link of each node, followed by the total number of links. */
+    private final int[] linkStart;
+
+    /** The index of the node each link goes to. */
+    private final int[] linkTargets;
+
+    /** The weight of each link. */
+    private final double[] linkWeights;
+
+    /** The sum of inputs of each node before it is activated. */
+    private final double[] inputValues;
+
+    /** The value of each node after it is activated. */
+    private final double[] outputValues;
+
+    /**
+     * Compiles the supplied network.
+     * @param network The network to compile.
+     */
+    public CompiledNetwork(NetworkIF network) {
+        List<NEATNodeIF> nodes = ReusedCode.listNodesByLayer(network);
+        int numNodes = nodes.size();
+        Map<Integer, Integer> indices = new HashMap<>();
+        for(int i = 0; i < numNodes; i++) {
+            indices.put(nodes.get(i).getId(), i);
+        }
+
+        numInputs = network.getInputNodes().length;
+        biasIndex = indices.get(network.getBiasNode().getId());
+        biasValue = network.getBiasNode().getOutputValue();
+        outputIndices = new int[network.getOutputNodes().length];
+        for(int i = 0; i < outputIndices.length; i++) {
+            outputIndices[i] = indices.get(network.getOutputNodes()[i].getId());
+        }
+
+        activations = new int[numNodes];
+        slopes = new double[numNodes];
+        linkStart = new int[numNodes + 1];
+        int numLinks = 0;
+        for(int i = 0; i < numNodes; i++) {
+            NEATNodeIF node = nodes.get(i);
+            if(i < numInputs || i == biasIndex) {
+                activations[i] = NO_ACTIVATION;
+            } else if(node instanceof HNNodeIF) {
+                activations[i] = ((HNNodeIF) node).getRandomActive();
+                slopes[i] = ((HNNodeIF) node).getSlope();
+            } else {
+                activations[i] = SIGMOID;
+            }
+            for(LinkIF link : node.getOutgoingLinks()) {
+                if(link.isEnabled()) {
+                    numLinks++;
+                }
+            }
+        }
+
+        linkTargets = new int[numLinks];
+        linkWeights = new double[numLinks];
+        int link = 0;
+        for(int i = 0; i < numNodes; i++) {
+            linkStart[i] = link;
+            for(LinkIF outgoing : nodes.get(i).getOutgoingLinks()) {
+                if(outgoing.isEnabled()) {
+                    linkTargets[link] = indices.get(outgoing.getOutputNode().getId());
+                    linkWeights[link] = outgoing.getWeight();
+                    link++;
+                }
+            }
+        }
+        linkStart[numNodes] = link;
+
+        inputValues = new double[numNodes];
+        outputValues = new double[numNodes];
+    }
+
+    /**
+     * Rebuilds a compiled network from its arrays, as read back by {@link #read(DataInput)}.
+     * @param numInputs The number of input nodes.
+     * @param biasIndex The index of the bias node.
+     * @param biasValue The value the bias node sends along its links.
+     * @param outputIndices The indices of the output nodes.
+     * @param activations The activation function of each node.
+     * @param slopes The slope of each node's parameterized ReLU.
+     * @param linkStart The index of the first outgoing link of each node and the number of links.
+     * @param linkTargets The index of the node each link goes to.
+     * @param linkWeights The weight of each link.
+     */
+    private CompiledNetwork(int numInputs, int biasIndex, double biasValue, int[] outputIndices,
+                            int[] activations, double[] slopes, int[] linkStart,
+                            int[] linkTargets, double[] linkWeights) {
+        this.numInputs = numInputs;
+        this.biasIndex = biasIndex;
+        this.biasValue = biasValue;
+        this.outputIndices = outputIndices;
+        this.activations = activations;
+        this.slopes = slopes;
+        this.linkStart = linkStart;
+        this.linkTargets = linkTargets;
+        this.linkWeights = linkWeights;
+        inputValues = new double[activations.length];
+        outputValues = new double[activations.length];
+    }
+
+    /**
+     * Writes this compiled network in a compact binary form that {@link #read(DataInput)} reads
+     * back, so it can be run in another process.
+     * @param out The output to write to.
+     * @throws IOException If the output can not be written to.
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(activations.length);
+        out.writeInt(linkTargets.length);
+        out.writeInt(outputIndices.length);
+        out.writeInt(numInputs);
+        out.writeInt(biasIndex);
+        out.writeDouble(biasValue);
+        for(int index : outputIndices) {
+            out.writeInt(index);
+        }
+        for(int node = 0; node < activations.length; node++) {
+            out.writeByte(activations[node]);
+            out.writeDouble(slopes[node]);
+            out.writeInt(linkStart[node]);
+        }
+        for(int link = 0; link < linkTargets.length; link++) {
+            out.writeInt(linkTargets[link]);
+            out.writeDouble(linkWeights[link]);
+        }
+    }
+
+    /**
+     * Reads back a compiled network written by {@link #write(DataOutput)}. Networks with more than
+     * MAX_NODES nodes or MAX_LINKS links are refused before anything is allocated for them.
+     * @param in The input to read from.
+     * @return The compiled network.
+     * @throws IOException If the input can not be read or does not hold a compiled network.
+     */
+    public static CompiledNetwork read(DataInput in) throws IOException {
+        int numNodes = in.readInt();
+        int numLinks = in.readInt();
+        int numOutputs = in.readInt();
+        if(numNodes < 0 || numNodes > MAX_NODES || numLinks < 0 || numLinks > MAX_LINKS
+                || numOutputs < 0 || numOutputs > numNodes) {
+            throw new IOException("Malformed compiled network");
+        }
+        int numInputs = in.readInt();
+        int biasIndex = in.readInt();
+        double biasValue = in.readDouble();
+        int[] outputIndices = new int[numOutputs];
+        for(int i = 0; i < numOutputs; i++) {
+            outputIndices[i] = checkIndex(in.readInt(), numNodes);
+        }
+        int[] activations = new int[numNodes];
+        double[] slopes = new double[numNodes];
+        int[] linkStart = new int[numNodes + 1];
+        for(int node = 0; node < numNodes; node++) {
+            activations[node] = in.readByte();
+            slopes[node] = in.readDouble();
+            linkStart[node] = checkIndex(in.readInt(), numLinks + 1);
+        }
+        linkStart[numNodes] = numLinks;
+        int[] linkTargets = new int[numLinks];
+        double[] linkWeights = new double[numLinks];
+        for(int link = 0; link < numLinks; link++) {
+            linkTargets[link] = checkIndex(in.readInt(), numNodes);
+            linkWeights[link] = in.readDouble();
+        }
+        if(numInputs < 0 || numInputs > numNodes) {
+            throw new IOException("Malformed compiled network");
+        }
+        return new CompiledNetwork(numInputs, checkIndex(biasIndex, numNodes), biasValue,
+                outputIndices, activations, slopes, linkStart, linkTargets, linkWeights);
+    }
+
+    /**
+     * Returns the supplied index if it lies between zero and the supplied bound.
+     * @param index The index to check.
+     * @param bound The bound the index must lie below.
+     * @return The index.
+     * @throws IOException If the index lies outside of the bound.
+     */
+    private static int checkIndex(int index, int bound) throws IOException {
+        if(index < 0 || index >= bound) {
+            throw new IOException("Malformed compiled network");
+        }
+        return index;
+    }
+
+    /**
+     * Activates every node in the network in order and writes the values of the output nodes to
+     * the supplied array.
+     * @param inputs The values to be set as our input layer nodes' output values.
+     * @param outputs The array to write the output values in our output nodes to.
+     */
+    public void feedForward(float[] inputs, double[] outputs) {
+        for(int i = 0; i < numInputs; i++) {
+            outputValues[i] = inputs[i];
+        }
+        outputValues[biasIndex] = biasValue;
+
+        for(int node = 0; node < activations.length; node++) {
+            double value = activations[node] == NO_ACTIVATION ? outputValues[node]
+                    : activate(activations[node], slopes[node], inputValues[node]);
+            outputValues[node] = value;
+            inputValues[node] = 0;
+
+            for(int link = linkStart[node]; link < linkStart[node + 1]; link++) {
+                inputValues[linkTargets[link]] += linkWeights[link] * value;
+            }
+        }
+
+        for(int i = 0; i < outputIndices.length; i++) {
+            outputs[i] = outputValues[outputIndices[i]];
+        }
+    }
+
+    /**
+     * Activates every node in the network for a whole batch of input values at once. The inputs
+     * and outputs are stored by column, so inputs[i][t] is the value of input node i for entry t
+     * and outputs[o][t] receives the value of output node o for entry t. Each node is activated
+     * for every entry from start up to end before moving on to the next node, which keeps the
+     * inner loops over plain arrays. The batch only uses its own scratch arrays, so several
+     * batches of the same compiled network may run at the same time.
+     * @param inputs The columns of values to be set as our input layer nodes' output values.
+     * @param start The first entry of the batch.
+     * @param end The entry after the last entry of the batch.
+     * @param outputs The columns to write the output values in our output nodes to.
+     */
+    public void feedForward(float[][] inputs, int start, int end, double[][] outputs) {
+        int count = end - start;
+        double[][] values = new double[activations.length][count];
+
+        for(int node = 0; node < activations.length; node++) {
+            double[] value = values[node];
+            if(node < numInputs) {
+                float[] input = inputs[node];
+                for(int t = 0; t < count; t++) {
+                    value[t] = input[start + t];
+                }
+            } else if(node == biasIndex) {
+                for(int t = 0; t < count; t++) {
+                    value[t] = biasValue;
+                }
+            } else {
+                for(int t = 0; t < count; t++) {
+                    value[t] = activate(activations[node], slopes[node], value[t]);
+                }
+            }
+
+            for(int link = linkStart[node]; link < linkStart[node + 1]; link++) {
+                double[] target = values[linkTargets[link]];
+                double weight = linkWeights[link];
+                for(int t = 0; t < count; t++) {
+                    target[t] += weight * value[t];
+                }
+            }
+        }
+
+        for(int i = 0; i < outputIndices.length; i++) {
+            System.arraycopy(values[outputIndices[i]], 0, outputs[i], start, count);
+        }
+    }
+
+    /**
+     * Calls the supplied activation function on a value. The activation functions are numbered
+     * the same way as the random activation of a HyperNEAT node.
+     * @param activation The activation function to call.
+     * @param slope The slope of the parameterized ReLU.
+     * @param value The value to call the function on.
+     * @return The value after the function has finished.
+     */
+    public static double activate(int activation, double slope, double value) {
+        switch(activation) {
+            case TANH:
+                return 2 * (1.0 / (1.0 + Math.pow(Math.E, (-1 * (2 * value))))) - 1;
+            case PARAMETERIZED_RELU:
+                return value < 0 ? slope * value : value;
+            case SWISH:
+                return value * (1.0 / (1.0 + Math.pow(Math.E, (-1 * value))));
+            case SIGMOID:
+            default:
+                return 1.0 / (1.0 + Math.pow(Math.E, (-1 * value)));
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package AIinterfaces;
+
+/**
+ * Decides the moves of the agents of a game from what they see. A population controls its agents
+ * with the networks of its organisms, while an evaluation worker controls them with networks it
+ * received from another process.
+ */
+public interface ControllerIF {
+
+    /**
+     * Writes the network output given the supplied agent ID number and it's vision into the
+     * supplied array, so no new array has to be made every step. May be called from several
+     * threads at once as long as each call is for a different agent and uses its own arrays. A
+     * network with fewer outputs than the array holds only writes its own outputs and leaves the
+     * rest of the array as it was.
+     * @param id The agent ID number to search for in our mapping.
+     * @param agentVision The array of what the agent can see
+     * @param output The array to write the network output to.
+     */
+    void getNetworkOutput(int id, float[] agentVision, double[] output);
+}
@@ -0,0 +1,122 @@
+package AIinterfaces;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of the innovation numbers handed out to links. Every link between the same input
+ * and output node is given the same innovation number, which helps in identifying similar links
+ * across multiple networks during crossover. Links are looked up by their input and output node
+ * IDs packed into a single long, so a lookup takes the same time no matter how many innovations
+ * there are. Several threads may ask for innovation numbers at the same time.
+ */
+public class InnovationRegistry {
+
+    /** The innovation number of every link, keyed by its packed input and output node IDs. */
+    private final Map<Long, Integer> innovations;
+
+    /** The packed input and output node IDs of every link, indexed by its innovation number. */
+    private final List<Long> links;
+
+    /** Creates an empty registry. */
+    public InnovationRegistry() {
+        innovations = new ConcurrentHashMap<>();
+        links = new ArrayList<>();
+    }
+
+    /**
+     * Returns the innovation number of the link between the specified input node ID and output
+     * node ID. Will return a new innovation number if there is no pre-existing link in our
+     * registry.
+     * @param inputID The ID of the input node.
+     * @param outputID The ID of the output node.
+     * @return The innovation number of a pre-existing link or a brand new innovation number.
+     */
+    public int getInnovationNumber(int inputID, int outputID) {
+        long key = pack(inputID, outputID);
+        Integer innovationNumber = innovations.get(key);
+        if(innovationNumber == null) {
+            synchronized(this) {
+                // Another thread may have added the link while we were waiting.
+                innovationNumber = innovations.get(key);
+                if(innovationNumber == null) {
+                    innovationNumber = links.size();
+                    links.add(key);
+                    innovations.put(key, innovationNumber);
+                }
+            }
+        }
+        return innovationNumber;
+    }
+
+    /**
+     * Returns the ID of the input node of the link with the supplied innovation number.
+     * @param innovationNumber The innovation number of the link.
+     * @return The ID of the input node of the link.
+     */
+    public synchronized int getInputNodeID(int innovationNumber) {
+        return (int) (links.get(innovationNumber) >> 32);
+    }
+
+    /**
+     * Returns the ID of the output node of the link with the supplied innovation number.
+     * @param innovationNumber The innovation number of the link.
+     * @return The ID of the output node of the link.
+     */
+    public synchronized int getOutputNodeID(int innovationNumber) {
+        return (int) (long) links.get(innovationNumber);
+    }
+
+    /**
+     * Returns the number of innovation numbers handed out so far.
+     * @return The number of innovation numbers handed out so far.
+     */
+    public synchronized int size() {
+        return links.size();
+    }
+
+    /**
+     * Writes every link handed an innovation number so far to a checkpoint, in order of their
+     * innovation numbers.
+     * @param out The output to write to.
+     * @throws IOException If the output can not be written to.
+     */
+    public synchronized void write(DataOutput out) throws IOException {
+        out.writeInt(links.size());
+        for(long key : links) {
+            out.writeLong(key);
+        }
+    }
+
+    /**
+     * Replaces the contents of this registry with the links read from a checkpoint written by
+     * write, so they keep the innovation numbers they had.
+     * @param in The input to read from.
+     * @throws IOException If the input can not be read.
+     */
+    public synchronized void read(DataInput in) throws IOException {
+        int size = ReusedCode.readSize(in);
+        innovations.clear();
+        links.clear();
+        for(int i = 0; i < size; i++) {
+            long key = in.readLong();
+            innovations.put(key, i);
+            links.add(key);
+        }
+    }
+
+    /**
+     * Packs the input and output node IDs of a link into a single key.
+     * @param inputID The ID of the input node.
+     * @param outputID The ID of the output node.
+     * @return The key of the link.
+     */
+    private static long pack(int inputID, int outputID) {
+        return ((long) inputID << 32) | (outputID & 0xFFFFFFFFL);
+    }
+}
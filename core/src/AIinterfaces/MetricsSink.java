@@ -0,0 +1,272 @@
+package AIinterfaces;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Appends statistics to a log file from a background thread, so the simulation never waits on the
+ * disk when it logs a generation. Text handed to the sink is queued and the writer thread gathers
+ * whatever has been queued into one buffer before it is written to the end of the file. The queue
+ * is bounded, so a stalled disk only holds up the simulation once a whole queue of text is waiting.
+ * Everything queued is written and forced to the disk when the sink is closed, which also happens
+ * when the virtual machine shuts down.
+ */
+public class MetricsSink implements AutoCloseable {
+
+    /** The number of pieces of text that can wait to be written. */
+    private static final int QUEUE_CAPACITY = 1024;
+
+    /** The number of bytes gathered before they are written to the file. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Queued to stop the writer thread once everything before it is written. */
+    private static final Object CLOSE = new Object();
+
+    /** The text waiting to be written, and the markers waiting for it to be written. */
+    private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    /** The file the text is appended to. */
+    private final File file;
+
+    /** The channel to the end of the file. Only used by the writer thread. */
+    private final FileChannel channel;
+
+    /** The bytes gathered to be written next. Only used by the writer thread. */
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /** The thread that writes the queued text. */
+    private final Thread writer;
+
+    /** Closes the sink when the virtual machine shuts down. */
+    private final Thread shutdownHook;
+
+    /** Whether the sink has been closed. */
+    private boolean closed;
+
+    /**
+     * Opens a sink that appends to the supplied file, creating the file if it does not exist.
+     * @param file The file to append to.
+     * @throws IOException If the file can not be opened.
+     */
+    public MetricsSink(File file) throws IOException {
+        this.file = file;
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        writer = new Thread(this::drain, "metrics-" + file.getName());
+        writer.setDaemon(true);
+        writer.start();
+        shutdownHook = new Thread(this::close, "metrics-shutdown-" + file.getName());
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Returns the file this sink appends to.
+     * @return The file this sink appends to.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Queues the supplied text to be appended to the file. Only waits if the queue is full.
+     * @param text The text to append.
+     */
+    public void write(String text) {
+        enqueue(text);
+    }
+
+    /** Waits until everything written to this sink so far is in the file. */
+    public void flush() {
+        CountDownLatch written = new CountDownLatch(1);
+        enqueue(written);
+        awaitUninterruptibly(written);
+    }
+
+    /**
+     * Writes everything queued, forces it to the disk and closes the file. Text written after
+     * the sink is closed is dropped.
+     */
+    @Override
+    public void close() {
+        synchronized(this) {
+            if(closed) {
+                return;
+            }
+            // Nothing can be queued behind the close marker, as queueing also holds the lock.
+            closed = true;
+            putUninterruptibly(CLOSE);
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch(IllegalStateException e) {
+            // Already shutting down, which is what called us.
+        }
+        boolean interrupted = false;
+        while(writer.isAlive()) {
+            try {
+                writer.join();
+            } catch(InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queues an entry for the writer thread unless the sink is closed.
+     * @param entry The text or marker to queue.
+     */
+    private synchronized void enqueue(Object entry) {
+        if(closed) {
+            if(entry instanceof CountDownLatch) {
+                ((CountDownLatch) entry).countDown();
+            }
+        } else {
+            putUninterruptibly(entry);
+        }
+    }
+
+    /**
+     * Writes queued text to the file until the sink is closed. Run by the writer thread. If the
+     * file can not be written to, the rest of the text is dropped so the simulation never waits
+     * on a queue nobody empties.
+     */
+    private void drain() {
+        boolean broken = false;
+        boolean open = true;
+        while(open) {
+            Object entry = takeUninterruptibly();
+            try {
+                // Gather everything else already queued before going to the disk.
+                while(entry != null) {
+                    if(entry == CLOSE) {
+                        open = false;
+                    } else if(entry instanceof CountDownLatch) {
+                        try {
+                            if(!broken) {
+                                writeBuffer();
+                            }
+                        } finally {
+                            ((CountDownLatch) entry).countDown();
+                        }
+                    } else if(!broken) {
+                        append((String) entry);
+                    }
+                    entry = open ? queue.poll() : null;
+                }
+                if(!broken) {
+                    writeBuffer();
+                    if(!open) {
+                        channel.force(false);
+                    }
+                }
+            } catch(IOException e) {
+                System.err.println("ERROR: Unable to write statistics to " + file);
+                broken = true;
+            }
+        }
+        try {
+            channel.close();
+        } catch(IOException e) {
+            System.err.println("ERROR: Unable to close " + file);
+        }
+    }
+
+    /**
+     * Adds the supplied text to the buffer, writing the buffer out whenever it fills up.
+     * @param text The text to add.
+     * @throws IOException If the file can not be written to.
+     */
+    private void append(String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        int offset = 0;
+        while(offset < bytes.length) {
+            if(!buffer.hasRemaining()) {
+                writeBuffer();
+            }
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    /**
+     * Writes the bytes gathered in the buffer to the end of the file.
+     * @throws IOException If the file can not be written to.
+     */
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Returns the next queued entry, waiting for one without giving up when interrupted.
+     * @return The next queued entry.
+     */
+    private Object takeUninterruptibly() {
+        boolean interrupted = false;
+        try {
+            while(true) {
+                try {
+                    return queue.take();
+                } catch(InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if(interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Queues an entry, waiting for room without giving up when interrupted.
+     * @param entry The entry to queue.
+     */
+    private void putUninterruptibly(Object entry) {
+        boolean interrupted = false;
+        while(true) {
+            try {
+                queue.put(entry);
+                break;
+            } catch(InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for the supplied latch without giving up when interrupted.
+     * @param latch The latch to wait for.
+     */
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while(true) {
+            try {
+                latch.await();
+                break;
+            } catch(InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -15,6 +15,13 @@ public interface CPPNNetworkIF extends HNNetworkIF{
      */
     double[] runSubstrate(float[] agentVision);
 
+    /**
+     * Feedforward the vision through the network into the supplied array
+     * @param agentVision the cats vision
+     * @param output Array to write the output values to
+     */
+    void runSubstrate(float[] agentVision, double[] output);
+
     /**
      * Get the network for this CPPN
      * @return The network
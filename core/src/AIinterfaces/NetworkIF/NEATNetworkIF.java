@@ -18,4 +18,19 @@ public interface NEATNetworkIF extends NetworkIF{
     @Override
     List<NEATNodeIF> getHiddenNodes();
 
+    /**
+     * Activates every node in the network in order from input -> bias -> hidden -> output.
+     * @param inputValues The values to be set as our input layer nodes' output values.
+     * @return The output values in our output nodes after every node has been activated.
+     */
+    double[] feedForward(float[] inputValues);
+
+    /**
+     * Activates every node in the network in order from input -> bias -> hidden -> output and
+     * writes the values of the output nodes to the supplied array.
+     * @param inputValues The values to be set as our input layer nodes' output values.
+     * @param outputValues The array to write the output values in our output nodes to.
+     */
+    void feedForward(float[] inputValues, double[] outputValues);
+
 }
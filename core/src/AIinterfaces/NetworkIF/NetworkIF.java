@@ -1,9 +1,12 @@
 package AIinterfaces.NetworkIF;
 
+import AIinterfaces.InnovationRegistry;
 import AIinterfaces.LinkIF;
 import AIinterfaces.NodeIF.NEATNodeIF;
+
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.List;
-import java.util.Map;
 
 /**
  * This interface is a broad overview for all methods the implementing interfaces also need.
@@ -18,6 +21,16 @@ public interface NetworkIF {
      */
     List<LinkIF> getLinks();
 
+    /**
+     * Adds a link with the supplied innovation number between two nodes of this network that are not connected yet,
+     * keeping the links in order by innovation number. Called by ReusedCode.addLink once it has the innovation number.
+     * @param innovationNumber The innovation number of the link.
+     * @param input            The input node to connect from.
+     * @param output           The output node to connect to.
+     * @param weight           The weight that should be given to the link.
+     */
+    void insertLink(int innovationNumber, NEATNodeIF input, NEATNodeIF output, double weight);
+
     /**
      * Returns this network's fitness.
      * @return This network's fitness.
@@ -26,16 +39,32 @@ public interface NetworkIF {
 
     /**
      * Mutates this network, either with only link weights possibly being modified or by adding additional structure via
-     * new links or new nodes.
+     * new links or new nodes. The same as mutateWeights followed by mutateStructure.
      */
     void mutate();
 
+    /** Possibly mutates the weight of each link. Never hands out innovation numbers. */
+    void mutateWeights();
+
+    /**
+     * Possibly adds structure via new links or new nodes. New links are handed innovation numbers in the order they are
+     * made, so networks that are made at the same time must have their structure mutated one at a time, in a fixed
+     * order, for the numbers not to depend on which thread gets to them first.
+     */
+    void mutateStructure();
+
     /**
      * Set the new fitness
      * @param fitness the new fitness
      */
     void setFitness(int fitness);
 
+    /**
+     * Returns every node in order by their layers, from input -> bias -> hidden -> output.
+     * @return The list of nodes in order by their layers.
+     */
+    List<NEATNodeIF> getNodesByLayer();
+
     /** Increment the number of layers */
     void incrementLayer();
 
@@ -48,8 +77,8 @@ public interface NetworkIF {
     /** Increment the total number of nodes */
     void incrementNodes();
 
-    /** Get the innovation list */
-    Map<Integer, String> getInnovationList();
+    /** Get the innovation registry */
+    InnovationRegistry getInnovationRegistry();
 
     /**
      * Gets the total number of layers
@@ -57,6 +86,13 @@ public interface NetworkIF {
      */
     int getNumLayers();
 
+    /**
+     * Writes this network to a checkpoint, from which the network can be read back as it is.
+     * @param out The output to write to.
+     * @throws IOException If the output can not be written to.
+     */
+    void write(DataOutput out) throws IOException;
+
     /**
      * Returns the node with the specified ID.
      * @param id The ID number to search by.
@@ -0,0 +1,73 @@
+package AIinterfaces;
+
+import java.util.Arrays;
+import java.util.function.ToIntFunction;
+
+/**
+ * Holds the network of every organism in a population, indexed directly by the ID number of its
+ * agent. The agents of a population are numbered 0 up to the size of the population, so every ID
+ * is a slot of one array and going through the organisms in order of ID needs no boxing or hashing.
+ * @param <N> The type of network the organisms use.
+ */
+public class OrganismTable<N> {
+
+    /** The network of each organism, at the ID number of its agent. */
+    private final Object[] networks;
+
+    /**
+     * Constructs an empty table for the supplied number of organisms.
+     * @param size The number of organisms in the population.
+     */
+    public OrganismTable(int size) {
+        networks = new Object[size];
+    }
+
+    /**
+     * Returns the number of organisms in the table.
+     * @return The number of organisms in the table.
+     */
+    public int size() {
+        return networks.length;
+    }
+
+    /**
+     * Returns the network of the agent with the supplied ID number.
+     * @param agentID The ID number of the agent.
+     * @return The network of the agent.
+     */
+    @SuppressWarnings("unchecked")
+    public N get(int agentID) {
+        return (N) networks[agentID];
+    }
+
+    /**
+     * Sets the network of the agent with the supplied ID number.
+     * @param agentID The ID number of the agent.
+     * @param network The network the agent uses.
+     */
+    public void set(int agentID, N network) {
+        networks[agentID] = network;
+    }
+
+    /**
+     * Returns the ID numbers of the agents ranked from the fittest network down. Networks with the
+     * same fitness are ranked by ID number.
+     * @param fitness Returns the fitness of a network.
+     * @return The ID numbers of the agents, fittest first.
+     */
+    public int[] rankByFitness(ToIntFunction<N> fitness) {
+        // Pack the negated fitness above the ID, so sorting the keys ranks the agents from the
+        // fittest down and breaks ties by ID.
+        long[] order = new long[networks.length];
+        for(int id = 0; id < networks.length; id++) {
+            order[id] = (-(long) fitness.applyAsInt(get(id)) << 32) | id;
+        }
+        Arrays.sort(order);
+
+        int[] ranking = new int[networks.length];
+        for(int i = 0; i < networks.length; i++) {
+            ranking[i] = (int) order[i];
+        }
+        return ranking;
+    }
+}
@@ -2,6 +2,8 @@ package AIinterfaces.PopulationIF;
 
 import AIinterfaces.SpeciesIF.HNSpeciesIF;
 
+import com.badlogic.gdx.graphics.Color;
+
 import java.util.List;
 
 /**
@@ -16,6 +18,12 @@ public interface HNPopulationIF{
      */
     List<HNSpeciesIF> getSpecies();
 
+    /**
+     * Gets the colors used by the species
+     * @return The colors used by the species
+     */
+    List<Color> getTakenColors();
+
     /**
      * The best agent of the population
      * @return The ID of the best agent
@@ -0,0 +1,49 @@
+package AIinterfaces.PopulationIF;
+
+import AIinterfaces.NetworkIF.NetworkIF;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Interface for the populations whose organisms are NetworkIFs, which is what lets their networks
+ * be played out by evaluation workers, migrate between the islands of an archipelago and be
+ * written to checkpoints. NEAT and HyperNEAT populations are; SUNA populations are not.
+ */
+public interface NetworkPopulationIF extends PopulationIF {
+
+    /**
+     * Returns the network of the organism controlling the agent with the supplied ID number.
+     * @param id The agent ID number to search for in our mapping.
+     * @return The network of the agent's organism.
+     */
+    NetworkIF getNetwork(int id);
+
+    /**
+     * Returns copies of the networks of the fittest organisms, fittest first. The copies keep the
+     * fitness of their originals, so this should be called once every fitness is assigned and
+     * before natural selection.
+     * @param count The number of networks to copy.
+     * @return Copies of the fittest networks.
+     */
+    List<NetworkIF> getFittestNetworks(int count);
+
+    /**
+     * Gives the least fit organisms the supplied networks instead, such as networks migrating from
+     * another population. The best organism is never replaced. Every population numbers its own
+     * links, so the organisms are given copies whose links are numbered by this population, and
+     * links new to it are numbered in the order of the supplied networks.
+     * @param networks The networks to take in, of the same type this population evolves.
+     */
+    void replaceWeakest(List<NetworkIF> networks);
+
+    /**
+     * Writes everything this population needs to go on evolving to a checkpoint: the generation,
+     * the random numbers, the innovation numbers handed out so far, every organism and every
+     * species. Should be called between generations, once natural selection is done.
+     * @param out The output to write to.
+     * @throws IOException If the output can not be written to.
+     */
+    void writeCheckpoint(DataOutput out) throws IOException;
+}
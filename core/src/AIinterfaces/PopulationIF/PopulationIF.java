@@ -1,5 +1,7 @@
 package AIinterfaces.PopulationIF;
 
+import AIinterfaces.ControllerIF;
+import AIinterfaces.MetricsSink;
 import com.mygdx.kittener.game.Agent;
 
 /**
@@ -7,7 +9,7 @@ import com.mygdx.kittener.game.Agent;
  * @author Brooke Kiser and Tyler McVeigh
  * @version 22 November, 2020
  */
-public interface PopulationIF {
+public interface PopulationIF extends ControllerIF {
 
     /**
      * Returns the current generation we are at.
@@ -19,7 +21,8 @@ public interface PopulationIF {
     void incrementGeneration();
 
     /**
-     * Returns the network output given the supplied agent ID number and it's vision.
+     * Returns the network output given the supplied agent ID number and it's vision. May be called
+     * from several threads at once as long as each call is for a different agent.
      * @param id The agent ID number to search for in our mapping.
      * @param agentVision The array of what the agent can see
      * @return The network output by the supplied agent ID number.
@@ -53,4 +56,10 @@ public interface PopulationIF {
      */
     int getBestAgentID();
 
+    /**
+     * Sets the log the statistics of every generation are written to.
+     * @param stats The log to write to, or null to not log statistics.
+     */
+    void setStatistics(MetricsSink stats);
+
 }
@@ -0,0 +1,96 @@
+package AIinterfaces;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.util.Random;
+
+/**
+ * Hands out the random numbers used by the evolution code. Each thread draws from its own current
+ * stream, so no two threads fight over one generator and no generator has to be made where a
+ * random number is needed. A population points the thread at its own seeded stream while it
+ * evolves, which makes a run with the same seed evolve the same networks again. Work handed to
+ * the worker threads should draw from a stream forked off the current one for each task, so the
+ * numbers a task gets do not depend on which thread runs it.
+ */
+public class RandomSource {
+
+    /** The stream each thread currently draws from. Unseeded until a population sets one. */
+    private static final ThreadLocal<Random> current = ThreadLocal.withInitial(Random::new);
+
+    /**
+     * Returns the stream the calling thread currently draws from.
+     * @return The current stream of the calling thread.
+     */
+    public static Random current() {
+        return current.get();
+    }
+
+    /**
+     * Makes the supplied stream the one the calling thread draws from.
+     * @param random The stream to draw from.
+     * @return The stream the calling thread drew from before, so it can be put back.
+     */
+    public static Random use(Random random) {
+        Random previous = current.get();
+        current.set(random);
+        return previous;
+    }
+
+    /**
+     * Writes the state of the supplied stream to a checkpoint, so the stream can be read back to
+     * go on with the same numbers.
+     * @param random The stream to write.
+     * @param out The output to write to.
+     * @throws IOException If the output can not be written to.
+     */
+    public static void write(Random random, DataOutput out) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(ObjectOutputStream objects = new ObjectOutputStream(bytes)) {
+            objects.writeObject(random);
+        }
+        out.writeInt(bytes.size());
+        out.write(bytes.toByteArray());
+    }
+
+    /**
+     * Reads a stream written by write back from a checkpoint.
+     * @param in The input to read from.
+     * @return A stream that goes on with the same numbers as the stream written.
+     * @throws IOException If the input can not be read or does not hold a stream.
+     */
+    public static Random read(DataInput in) throws IOException {
+        byte[] bytes = new byte[ReusedCode.readSize(in)];
+        in.readFully(bytes);
+        try(ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(bytes)) {
+            @Override
+            protected Class<?> resolveClass(ObjectStreamClass type)
+                    throws IOException, ClassNotFoundException {
+                // Never make anything but the stream itself out of the checkpoint.
+                if(!type.getName().equals(Random.class.getName())) {
+                    throw new InvalidClassException(type.getName(), "Not a random stream");
+                }
+                return super.resolveClass(type);
+            }
+        }) {
+            return (Random) objects.readObject();
+        } catch(ClassNotFoundException e) {
+            throw new IOException("Checkpoint holds no random stream", e);
+        }
+    }
+
+    /**
+     * Returns a new stream seeded from the current stream of the calling thread. Forking a stream
+     * for every task in the same order always gives every task the same numbers.
+     * @return The forked stream.
+     */
+    public static Random fork() {
+        return new Random(current.get().nextLong());
+    }
+}
@@ -5,9 +5,15 @@ import AIinterfaces.NetworkIF.NetworkIF;
 import AIinterfaces.NodeIF.NEATNodeIF;
 import AIinterfaces.PopulationIF.HNPopulationIF;
 import AIinterfaces.PopulationIF.NEATPopulationIF;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Colors;
+import com.badlogic.gdx.utils.Array;
 import hyperneat.*;
 import neat.Species;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -17,12 +23,16 @@ import java.util.*;
  */
 public class ReusedCode {
 
-    /** Mutates the weight of this link either completely or slightly. */
-    public static void mutateWeight(double weight) {
-        if(Math.random() < 0.1) {      // Completely change the weight.
-            weight = Math.random() * 2 - 1;
+    /**
+     * Mutates the weight of a link either completely or slightly.
+     * @param weight The weight of the link.
+     * @return The mutated weight, which the caller should give the link.
+     */
+    public static double mutateWeight(double weight) {
+        Random random = RandomSource.current();
+        if(random.nextDouble() < 0.1) {      // Completely change the weight.
+            weight = random.nextDouble() * 2 - 1;
         } else {                // Slightly change the weight.
-            Random random = new Random();
             weight += random.nextGaussian() / 50;
 
             if(weight > 1) {
@@ -31,6 +41,7 @@ public class ReusedCode {
                 weight = -1;
             }
         }
+        return weight;
     }
 
     /**
@@ -44,8 +55,52 @@ public class ReusedCode {
             assert input != null;
             assert output != null;
             addLink(thisNetwork, input, output, link.getWeight());
-            thisNetwork.getLinks().get(thisNetwork.getLinks().size() - 1).setEnabled(link.isEnabled());
+            // The copy may be numbered by the registry of another population than the network.
+            int innovationNumber = getInnovationNumber(thisNetwork, input.getId(), output.getId());
+            List<LinkIF> links = thisNetwork.getLinks();
+            int index = findLink(links, innovationNumber);
+            if(index < links.size() && links.get(index).getInnovationNum() == innovationNumber) {
+                links.get(index).setEnabled(link.isEnabled());
+            }
+        }
+    }
+
+    /**
+     * Writes a color to a checkpoint. Every component is written as it is, so the color read back
+     * equals the one written.
+     * @param color The color to write.
+     * @param out The output to write to.
+     * @throws IOException If the output can not be written to.
+     */
+    public static void writeColor(Color color, DataOutput out) throws IOException {
+        out.writeFloat(color.r);
+        out.writeFloat(color.g);
+        out.writeFloat(color.b);
+        out.writeFloat(color.a);
+    }
+
+    /**
+     * Reads a color written by writeColor back from a checkpoint.
+     * @param in The input to read from.
+     * @return The color.
+     * @throws IOException If the input can not be read.
+     */
+    public static Color readColor(DataInput in) throws IOException {
+        return new Color(in.readFloat(), in.readFloat(), in.readFloat(), in.readFloat());
+    }
+
+    /**
+     * Reads the number of entries that follow in a checkpoint.
+     * @param in The input to read from.
+     * @return The number of entries.
+     * @throws IOException If the input can not be read or the number is negative.
+     */
+    public static int readSize(DataInput in) throws IOException {
+        int size = in.readInt();
+        if(size < 0) {
+            throw new IOException("Malformed checkpoint");
         }
+        return size;
     }
 
     /**
@@ -55,13 +110,13 @@ public class ReusedCode {
     public static  void generateNetwork(NetworkIF thisNetwork, NEATNodeIF[] inputNodes, NEATNodeIF[] outputNodes, NEATNodeIF biasNode) {
         for(NEATNodeIF input : inputNodes) {
             for(NEATNodeIF output : outputNodes) {
-                // Math.random() * 2 - 1 generates a random number between -1 and 1.
-                addLink(thisNetwork, input, output, Math.random() * 2 - 1);
+                // nextDouble() * 2 - 1 generates a random number between -1 and 1.
+                addLink(thisNetwork, input, output, RandomSource.current().nextDouble() * 2 - 1);
             }
         }
         for(NEATNodeIF output : outputNodes) {
             // LinkIF the bias node and apply a random link weight. Comment out if using line below.
-            addLink(thisNetwork, biasNode, output, Math.random() * 2 - 1);
+            addLink(thisNetwork, biasNode, output, RandomSource.current().nextDouble() * 2 - 1);
             // NOTE: If you would like to control the link weight of the bias node, please use
             // the created one in the coefficients enumeration and uncomment the line below.
             // addLink(biasNode, output, Coefficients.BIAS_NODE_LINK_WEIGHT.getValue());
@@ -71,7 +126,7 @@ public class ReusedCode {
     /**
      * Adds a specified link between the two supplied nodes with a supplied weight. Does NOT
      * randomly add a link to the network. Will not create a link if the two nodes are already
-     * connected.
+     * connected. The links of the network are kept in order by their innovation numbers.
      * @param input The input node to connect from.
      * @param output The output node to connect to.
      * @param weight The weight that should be given to the link.
@@ -81,37 +136,42 @@ public class ReusedCode {
         int outputID = output.getId();
 
         if(!isConnectedTo(input, output)) {
-            network.getLinks().add(new Link(getInnovationNumber(network, inputID, outputID), inputID, output, weight));
-            input.getOutgoingLinks().add(new Link(getInnovationNumber(network, inputID, outputID), inputID,
-                    output, weight));
+            network.insertLink(getInnovationNumber(network, inputID, outputID), input, output, weight);
+        }
+    }
+
+    /**
+     * Returns the index of the link with the supplied innovation number in a list of links that
+     * is in order by innovation number. If there is no such link, returns the index it should be
+     * inserted at instead.
+     * @param links The list of links in order by innovation number.
+     * @param innovationNumber The innovation number of the link to find.
+     * @return The index of the link, or the index it should be inserted at.
+     */
+    public static int findLink(List<LinkIF> links, int innovationNumber) {
+        int low = 0;
+        int high = links.size();
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(links.get(middle).getInnovationNum() < innovationNumber) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
         }
+        return low;
     }
 
     /**
      * Returns the innovation number of the link between the specified input node ID and output
      * node ID. Will return a new innovation number if there is no pre-existing link in our
-     * innovation number list.
+     * innovation registry.
      * @param inputID The ID of the input node.
      * @param outputID The ID of the output node.
      * @return The innovation number of a pre-existing link or a brand new innovation number.
      */
     public static int getInnovationNumber(NetworkIF thisNetwork, int inputID, int outputID) {
-        int innovationNumber = thisNetwork.getInnovationList().size();
-        String innovationSearch = inputID + " " + outputID;
-        boolean found = false;
-        for(Map.Entry<Integer, String> innovation : thisNetwork.getInnovationList().entrySet()) {
-            int key = innovation.getKey();
-            String value = innovation.getValue();
-
-            if(value.equals(innovationSearch)) {
-                innovationNumber = key;
-                found = true;
-            }
-        }
-        if(!found) {    // If we did not find an existing innovation number, make a new one.
-            thisNetwork.getInnovationList().put(innovationNumber, innovationSearch);
-        }
-        return innovationNumber;
+        return thisNetwork.getInnovationRegistry().getInnovationNumber(inputID, outputID);
     }
 
     /**
@@ -140,41 +200,10 @@ public class ReusedCode {
         return maxLinks == thisNetwork.getLinks().size();
     }
 
-    /**
-     * Activates every node in the network in a certain specified order. Should traverse from
-     * input -> bias -> hidden -> output.
-     * @param inputValues The values to be set as our input layer nodes' output values.
-     * @return The output values in our output nodes after every node has been activated.
-     */
-    public static  double[] feedForward(NetworkIF thisNetwork, float[] inputValues) {
-        // Set the output values of our input nodes to the supplied input values.
-        for(int i = 0; i < thisNetwork.getInputNodes().length; i++) {
-            thisNetwork.getInputNodes()[i].setOutputValue(inputValues[i]);
-        }
-
-        // Activate the nodes in order from input node -> bias -> hidden -> output.
-        for(NEATNodeIF node : listNodesByLayer(thisNetwork)) {
-            node.activate();
-        }
-
-        // Write the output values to a double array to pass back as the decisions of this network.
-        double[] outputs = new double[thisNetwork.getOutputNodes().length];
-        for(int i = 0; i < thisNetwork.getOutputNodes().length; i++) {
-            outputs[i] = (thisNetwork.getOutputNodes()[i].getOutputValue());
-        }
-
-        // Set all input values back to 0 for the next feed forward.
-        for(NEATNodeIF node : listNodesByLayer(thisNetwork)) {
-            node.setInputValue(0);
-        }
-
-        return outputs;
-    }
-
     /** Adds a link between two randomly selected nodes. */
     public static  void addLinkMutation(NetworkIF thisNetwork) {
         if(!isFullyConnected(thisNetwork)) {
-            Random random = new Random();
+            Random random = RandomSource.current();
             List<NEATNodeIF> allNodes = listNodesByLayer(thisNetwork);
 
             NEATNodeIF input, output;
@@ -189,7 +218,7 @@ public class ReusedCode {
                 output = temp;
             }
 
-            addLink(thisNetwork, input, output, Math.random() * 2 - 1);
+            addLink(thisNetwork, input, output, random.nextDouble() * 2 - 1);
         }
     }
 
@@ -219,24 +248,44 @@ public class ReusedCode {
     }
 
     /**
-     * Returns a list of all nodes in order by their layers.
+     * Returns a list of all nodes in order by their layers. The network keeps this list up to
+     * date itself, so it must not be modified.
      * @return A list of all nodes in order by their layers.
      */
     public static  List<NEATNodeIF> listNodesByLayer(NetworkIF thisNetwork) {
+        return thisNetwork.getNodesByLayer();
+    }
+
+    /**
+     * Builds a new list of all nodes in order by their layers. Hidden nodes on the same layer
+     * stay in the order they were added to the network.
+     * @return A list of all nodes in order by their layers.
+     */
+    public static  List<NEATNodeIF> orderNodesByLayer(NetworkIF thisNetwork) {
+        List<NEATNodeIF> hidden = new ArrayList<>(thisNetwork.getHiddenNodes());
+        hidden.sort(Comparator.comparingInt(NEATNodeIF::getLayer));
+
         List<NEATNodeIF> nodes = new ArrayList<>(Arrays.asList(thisNetwork.getInputNodes()));
         nodes.add(thisNetwork.getBiasNode());
-        for(int layer = 1; layer < thisNetwork.getNumNodes(); layer++) {
-            for(NEATNodeIF node : thisNetwork.getHiddenNodes()) {
-                if(node.getLayer() == layer) {
-                    nodes.add(node);
-                }
-            }
-        }
+        nodes.addAll(hidden);
         nodes.addAll(Arrays.asList(thisNetwork.getOutputNodes()));
-
         return nodes;
     }
 
+    /**
+     * Inserts a new hidden node into a list of nodes in order by their layers, after every node
+     * on the same or an earlier layer.
+     * @param nodes The list of nodes in order by their layers.
+     * @param node The hidden node to insert.
+     */
+    public static  void insertNodeByLayer(List<NEATNodeIF> nodes, NEATNodeIF node) {
+        int index = nodes.size();
+        while(index > 0 && nodes.get(index - 1).getLayer() > node.getLayer()) {
+            index--;
+        }
+        nodes.add(index, node);
+    }
+
     /**
      * Determines if the supplied network is compatible with this network based on how closely it
      * is related to this network.
@@ -244,68 +293,55 @@ public class ReusedCode {
      * @return True if it is compatible, false otherwise.
      */
     public static  boolean isCompatibleTo(NetworkIF network, NetworkIF thisNetwork) {
-        double compatibility = 0.0;
-        int numDisjoint = getNumDisjointLinks(network, thisNetwork);
-        double avgWeighDiff = getAverageWeightDiff(network.getLinks(), thisNetwork);
-        double largestGenomeSize = Math.max(thisNetwork.getLinks().size(), network.getLinks().size());
-
-        if(largestGenomeSize < 20) {
-            largestGenomeSize = 1;
-        }
-
-        compatibility += (Coefficients.DISJOINT_CO.getValue() * numDisjoint) / largestGenomeSize;
-        compatibility += Coefficients.WEIGHT_CO.getValue() * avgWeighDiff;
-
-        return compatibility <= Coefficients.COMPAT_THRESH.getValue();
+        return getCompatibilityDistance(network, thisNetwork) <= Coefficients.COMPAT_THRESH.getValue();
     }
 
     /**
-     * Returns the number of links which are disjoint (i.e. they exist in one network, but not
-     * the other.
+     * Returns how far apart the supplied network and this network are. Counts the links which
+     * are disjoint or excess (i.e. they exist in one network, but not the other) and the average
+     * weight difference between the matching links. As the links of both networks are in order
+     * by innovation number, they are lined up in a single pass over both lists.
      * @param network The network to check against the compatibility network.
-     * @return The number of disjoint links.
+     * @return The compatibility distance between the two networks.
      */
-    public static  int getNumDisjointLinks(NetworkIF network, NetworkIF thisNetwork) {
+    public static  double getCompatibilityDistance(NetworkIF network, NetworkIF thisNetwork) {
+        List<LinkIF> links = thisNetwork.getLinks();
+        List<LinkIF> otherLinks = network.getLinks();
         int numDisjoint = 0;
-        List<LinkIF> otherNetworkLinks = network.getLinks();
-        for(LinkIF link : thisNetwork.getLinks()) {
-            if(!otherNetworkLinks.contains(link)) {
-                numDisjoint++;
-            }
-        }
+        int numMatching = 0;
+        double weightSum = 0.0;
 
-        for(LinkIF link : otherNetworkLinks) {
-            if(!thisNetwork.getLinks().contains(link)) {
+        int i = 0;
+        int j = 0;
+        while(i < links.size() && j < otherLinks.size()) {
+            LinkIF link = links.get(i);
+            LinkIF other = otherLinks.get(j);
+            if(link.getInnovationNum() == other.getInnovationNum()) {
+                weightSum += Math.abs(link.getWeight() - other.getWeight());
+                numMatching++;
+                i++;
+                j++;
+            } else if(link.getInnovationNum() < other.getInnovationNum()) {
+                numDisjoint++;
+                i++;
+            } else {
                 numDisjoint++;
+                j++;
             }
         }
-        return numDisjoint;
-    }
+        // Whatever is left over in either network are the excess links.
+        numDisjoint += links.size() - i + otherLinks.size() - j;
 
-    /**
-     * Returns the average weight difference between the matching links of the compatibility
-     * network and the supplied list of links.
-     * @param links The list of links to check calculate differences with our compatibility network.
-     * @return The average weight difference between matching links.
-     */
-    public static  double getAverageWeightDiff(List<LinkIF > links, NetworkIF thisNetwork) {
-        int numMatching = 0;
-        double weightSum = 0.0;
-        for(LinkIF link : thisNetwork.getLinks()) {
-            boolean foundMatch = false;
-            for(int i = 0; !foundMatch && i < links.size(); i++) {
-                if(link.getInnovationNum() == links.get(i).getInnovationNum()) {
-                    weightSum += Math.abs(link.getWeight() - links.get(i).getWeight());
-                    numMatching++;
-                    foundMatch = true;
-                }
-            }
+        double avgWeighDiff = numMatching == 0 ? 100 : weightSum / numMatching;
+        double largestGenomeSize = Math.max(links.size(), otherLinks.size());
+        if(largestGenomeSize < 20) {
+            largestGenomeSize = 1;
         }
 
-        if(numMatching == 0) {
-            return 100;
-        }
-        return weightSum / numMatching;
+        double compatibility = 0.0;
+        compatibility += (Coefficients.DISJOINT_CO.getValue() * numDisjoint) / largestGenomeSize;
+        compatibility += Coefficients.WEIGHT_CO.getValue() * avgWeighDiff;
+        return compatibility;
     }
 
     /**
@@ -320,20 +356,24 @@ public class ReusedCode {
     public static NetworkIF crossover(NetworkIF otherParent, NetworkIF thisNetwork) {
         NetworkIF baby;
         if(otherParent.getType()){
-            baby = new CPPN(thisNetwork.getInputNodes().length, thisNetwork.getOutputNodes().length);
+            baby = new CPPN(thisNetwork.getInputNodes().length, thisNetwork.getOutputNodes().length,
+                    thisNetwork.getInnovationRegistry());
         } else {
             baby = new neat.Network((NEATNetworkIF) thisNetwork);
         }
 
         // Randomly inherit traits from one of the matching links.
+        List<LinkIF> otherLinks = otherParent.getLinks();
+        int j = 0;
         for(LinkIF link : baby.getLinks()) {
-            for(LinkIF other : otherParent.getLinks()) {
-                if(link.getInnovationNum() == other.getInnovationNum()) {
-                    if(Math.random() < 0.5) {
-                        link.setWeight(other.getWeight());
-                        link.setEnabled(other.isEnabled());
-                    }
-                    break;
+            while(j < otherLinks.size() && otherLinks.get(j).getInnovationNum() < link.getInnovationNum()) {
+                j++;
+            }
+            if(j < otherLinks.size() && otherLinks.get(j).getInnovationNum() == link.getInnovationNum()) {
+                if(RandomSource.current().nextDouble() < 0.5) {
+                    LinkIF other = otherLinks.get(j);
+                    link.setWeight(other.getWeight());
+                    link.setEnabled(other.isEnabled());
                 }
             }
         }
@@ -371,9 +411,9 @@ public class ReusedCode {
     public static  void removeStaleSpecies(HNPopulationIF thisPopulation) {
 
         for(int i = 0; i < thisPopulation.getSpecies().size(); i++) {
-            if(!thisPopulation.getSpecies().get(i).getOrganisms().containsKey(thisPopulation.getBestAgentID())) {
+            if(!thisPopulation.getSpecies().get(i).getOrganisms().contains(thisPopulation.getBestAgentID())) {
                 if(thisPopulation.getSpecies().get(i).getStaleness() >= hyperneat.Coefficients.STALENESS_THRESH.getValue()) {
-                    hyperneat.Species.takenColors.remove(thisPopulation.getSpecies().get(i).getColor());
+                    thisPopulation.getTakenColors().remove(thisPopulation.getSpecies().get(i).getColor());
                     thisPopulation.getSpecies().remove(thisPopulation.getSpecies().get(i));
                     i--;
                 }
@@ -388,13 +428,48 @@ public class ReusedCode {
     public static  void removeStaleSpecies(NEATPopulationIF thisPopulation) {
 
         for(int i = 0; i < thisPopulation.getSpecies().size(); i++) {
-            if(!thisPopulation.getSpecies().get(i).getOrganisms().containsKey(thisPopulation.getBestAgentID())) {
+            if(!thisPopulation.getSpecies().get(i).getOrganisms().contains(thisPopulation.getBestAgentID())) {
                 if(thisPopulation.getSpecies().get(i).getStaleness() >= neat.Coefficients.STALENESS_THRESH.getValue()) {
-                    Species.takenColors.remove(thisPopulation.getSpecies().get(i).getColor());
+                    thisPopulation.getTakenColors().remove(thisPopulation.getSpecies().get(i).getColor());
                     thisPopulation.getSpecies().remove(thisPopulation.getSpecies().get(i));
                     i--;
                 }
             }
         }
     }
+
+    /**
+     * Returns every named color, ordered by name. The named colors are kept in a map whose order
+     * changes from run to run, so they are ordered first for the same seed to pick the same colors.
+     * The list is shared by every caller and must not be changed.
+     * @return Every named color, ordered by name.
+     */
+    public static Array<Color> listColors() {
+        return NamedColors.COLORS;
+    }
+
+    /**
+     * Holds the named colors ordered by name. The maps and sorting of libGDX reuse their
+     * iterators and buffers, so the colors are listed once here instead of by every population
+     * that may be running on its own thread.
+     */
+    private static class NamedColors {
+
+        /** Every named color, ordered by name. */
+        private static final Array<Color> COLORS = sortByName();
+
+        /**
+         * Returns every named color, ordered by name.
+         * @return Every named color, ordered by name.
+         */
+        private static Array<Color> sortByName() {
+            Array<String> names = Colors.getColors().keys().toArray();
+            names.sort();
+            Array<Color> colors = new Array<>(names.size);
+            for(int i = 0; i < names.size; i++) {
+                colors.add(Colors.get(names.get(i)));
+            }
+            return colors;
+        }
+    }
 }
@@ -0,0 +1,111 @@
+package AIinterfaces;
+
+import AIinterfaces.NetworkIF.NetworkIF;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Works out which species every organism of a population belongs to. An organism belongs to the
+ * first species whose compatibility network it is compatible with, and an organism that fits none
+ * of them founds a new species. This is done in two phases so that most of the comparisons can run
+ * on the worker threads. First every organism is compared against a snapshot of the compatibility
+ * networks of the existing species, in parallel. Then the organisms that fit none of them are
+ * merged into new species in order of ID, which gives exactly the species that comparing every
+ * organism one after the other would give.
+ * @param <N> The type of network the organisms use.
+ */
+public class Speciation<N> {
+
+    /** Returns the network of an organism that is compared for compatibility. */
+    private final Function<N, NetworkIF> genomeOf;
+
+    /**
+     * Constructs the speciation for a type of organism.
+     * @param genomeOf Returns the network of an organism that is compared for compatibility.
+     */
+    public Speciation(Function<N, NetworkIF> genomeOf) {
+        this.genomeOf = genomeOf;
+    }
+
+    /**
+     * Finds the first existing species every organism is compatible with. Only organisms whose
+     * index is still UNKNOWN are compared, in parallel, against a snapshot of the supplied
+     * compatibility networks taken before any comparison starts.
+     * @param organisms The organisms of the population.
+     * @param representatives The compatibility networks of the existing species, in order.
+     * @param speciesIndices The index of the species of each organism, CompatibilityCache.UNKNOWN
+     *                       for those still to be compared. Set to CompatibilityCache.NONE for
+     *                       organisms that fit no existing species.
+     */
+    public void matchRepresentatives(OrganismTable<N> organisms,
+                                     List<? extends NetworkIF> representatives,
+                                     int[] speciesIndices) {
+        NetworkIF[] snapshot = representatives.toArray(new NetworkIF[0]);
+        Workers.forEach(organisms.size(), id -> {
+            if(speciesIndices[id] == CompatibilityCache.UNKNOWN) {
+                NetworkIF network = genomeOf.apply(organisms.get(id));
+                speciesIndices[id] = findRepresentative(network, snapshot);
+            }
+        });
+    }
+
+    /**
+     * Gives every organism that fits no existing species a new species. The first such organism
+     * founds a new species and every later one that is compatible with it joins it, then the
+     * first organism left founds the next one, and so on. The comparisons against each founder
+     * run in parallel. New species are numbered on from the existing ones in the order they are
+     * founded, so the founder of a new species is always the organism with the lowest ID in it.
+     * @param organisms The organisms of the population.
+     * @param numExisting The number of existing species.
+     * @param speciesIndices The index of the species of each organism, CompatibilityCache.NONE
+     *                       for those that fit no existing species.
+     */
+    public void foundSpecies(OrganismTable<N> organisms, int numExisting, int[] speciesIndices) {
+        int[] orphans = new int[organisms.size()];
+        int numOrphans = 0;
+        for(int id = 0; id < organisms.size(); id++) {
+            if(speciesIndices[id] == CompatibilityCache.NONE) {
+                orphans[numOrphans++] = id;
+            }
+        }
+
+        int nextSpecies = numExisting;
+        boolean[] joins = new boolean[numOrphans];
+        while(numOrphans > 0) {
+            int newSpecies = nextSpecies++;
+            speciesIndices[orphans[0]] = newSpecies;
+            NetworkIF founder = genomeOf.apply(organisms.get(orphans[0]));
+
+            int numRemaining = numOrphans;
+            Workers.forEach(numRemaining - 1, i -> joins[i] = ReusedCode.isCompatibleTo(
+                    genomeOf.apply(organisms.get(orphans[i + 1])), founder));
+
+            // Keep the organisms that did not join in order of ID for the next founder.
+            numOrphans = 0;
+            for(int i = 1; i < numRemaining; i++) {
+                if(joins[i - 1]) {
+                    speciesIndices[orphans[i]] = newSpecies;
+                } else {
+                    orphans[numOrphans++] = orphans[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the first compatibility network the supplied network is compatible
+     * with.
+     * @param network The network to find a species for.
+     * @param representatives The compatibility networks of the species, in order.
+     * @return The index of the first compatible network, or CompatibilityCache.NONE.
+     */
+    private static int findRepresentative(NetworkIF network, NetworkIF[] representatives) {
+        for(int i = 0; i < representatives.length; i++) {
+            if(ReusedCode.isCompatibleTo(network, representatives[i])) {
+                return i;
+            }
+        }
+        return CompatibilityCache.NONE;
+    }
+}
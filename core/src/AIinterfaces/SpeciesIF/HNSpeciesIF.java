@@ -2,8 +2,7 @@ package AIinterfaces.SpeciesIF;
 
 import AIinterfaces.NetworkIF.CPPNNetworkIF;
 import AIinterfaces.NetworkIF.HNNetworkIF;
-
-import java.util.Map;
+import AIinterfaces.SpeciesMembers;
 
 /**
  * This interface is a specific implementation of some methods for the HyperNEAT species. This interfaces includes all the
@@ -15,9 +14,9 @@ public interface HNSpeciesIF extends SpeciesIF{
 
     /**
      * Get the organisms for this species
-     * @return A map containing all of the organisms
+     * @return The agent IDs and networks of all of the organisms
      */
-    Map<Integer, CPPNNetworkIF> getOrganisms();
+    SpeciesMembers<CPPNNetworkIF> getOrganisms();
 
     /**
      * The number of organisms
@@ -32,10 +31,12 @@ public interface HNSpeciesIF extends SpeciesIF{
     HNNetworkIF getCompatibilityNetwork();
 
     /**
-     * The organisms will reproduce if they survive the cull
+     * The organisms will reproduce if they survive the cull. Produces a baby through crossover or a clone and mutates
+     * the weights of its links. Its structure is left for the caller to mutate, so babies bred at the same time can be
+     * handed innovation numbers in a fixed order.
      * @return The network for the baby
      */
-    CPPNNetworkIF reproduce();
+    CPPNNetworkIF breed();
 
     /**
      * Add an organism to the species
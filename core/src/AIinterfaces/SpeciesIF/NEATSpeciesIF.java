@@ -1,8 +1,7 @@
 package AIinterfaces.SpeciesIF;
 
 import AIinterfaces.NetworkIF.NEATNetworkIF;
-
-import java.util.Map;
+import AIinterfaces.SpeciesMembers;
 
 /**
  * This interface is a specific implementation of some methods for the NEAT species. This interfaces includes all the
@@ -13,16 +12,17 @@ import java.util.Map;
 public interface NEATSpeciesIF extends SpeciesIF{
 
     /**
-     * Returns the mapping of agent IDs and their networks.
-     * @return The mapping of agent IDs and their networks.
+     * Returns the agent IDs of the organisms in this species and their networks.
+     * @return The agent IDs of the organisms and their networks.
      */
-    Map<Integer, NEATNetworkIF> getOrganisms();
+    SpeciesMembers<NEATNetworkIF> getOrganisms();
 
     /**
-     * Get the compatible network for the species
-     * @return The compatible network
+     * Produces a baby through crossover or a clone and mutates the weights of its links. Its structure is left for the
+     * caller to mutate, so babies bred at the same time can be handed innovation numbers in a fixed order.
+     * @return The network for the baby
      */
-    NEATNetworkIF reproduce();
+    NEATNetworkIF breed();
 
     /**
      * Add an organism to the species
@@ -2,6 +2,9 @@ package AIinterfaces.SpeciesIF;
 
 import com.badlogic.gdx.graphics.Color;
 
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * This interface is a broad overview for all the methods both implementations need
  * @author Brooke Kiser and Tyler McVeigh
@@ -56,4 +59,12 @@ public interface SpeciesIF {
      * @return The average fitness of this species.
      */
     double getAverageFitness();
+
+    /**
+     * Writes this species to a checkpoint. Its organisms are not written, as every species is cleared of its organisms
+     * before they are speciated again.
+     * @param out The output to write to.
+     * @throws IOException If the output can not be written to.
+     */
+    void write(DataOutput out) throws IOException;
 }
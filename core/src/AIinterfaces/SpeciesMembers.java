@@ -0,0 +1,135 @@
+package AIinterfaces;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Holds the organisms that belong to a species as a list of agent ID numbers, along with the
+ * network each of them uses in the species. The members keep the order they were added in.
+ * @param <N> The type of network the organisms use.
+ */
+public class SpeciesMembers<N> {
+
+    /** The ID number of the agent of each member. */
+    private int[] ids;
+
+    /** The network of each member, at the same index as its ID number. */
+    private final List<N> networks;
+
+    /** Constructs an empty list of members. */
+    public SpeciesMembers() {
+        ids = new int[8];
+        networks = new ArrayList<>();
+    }
+
+    /**
+     * Returns the number of members.
+     * @return The number of members.
+     */
+    public int size() {
+        return networks.size();
+    }
+
+    /**
+     * Returns whether there are no members.
+     * @return True if there are no members, false otherwise.
+     */
+    public boolean isEmpty() {
+        return networks.isEmpty();
+    }
+
+    /**
+     * Returns the ID number of the agent of the member at the supplied index.
+     * @param index The index of the member.
+     * @return The ID number of the agent.
+     */
+    public int getID(int index) {
+        if(index >= networks.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + networks.size());
+        }
+        return ids[index];
+    }
+
+    /**
+     * Returns the network of the member at the supplied index.
+     * @param index The index of the member.
+     * @return The network of the member.
+     */
+    public N get(int index) {
+        return networks.get(index);
+    }
+
+    /**
+     * Returns the index of the member with the supplied agent ID number.
+     * @param agentID The ID number of the agent.
+     * @return The index of the member, or -1 if the agent is not a member.
+     */
+    public int indexOf(int agentID) {
+        for(int i = 0; i < networks.size(); i++) {
+            if(ids[i] == agentID) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns whether the agent with the supplied ID number is a member.
+     * @param agentID The ID number of the agent.
+     * @return True if the agent is a member, false otherwise.
+     */
+    public boolean contains(int agentID) {
+        return indexOf(agentID) != -1;
+    }
+
+    /**
+     * Adds a member. The agent should not already be a member.
+     * @param agentID The ID number of the agent.
+     * @param network The network the agent uses.
+     */
+    public void add(int agentID, N network) {
+        if(networks.size() == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+        }
+        ids[networks.size()] = agentID;
+        networks.add(network);
+    }
+
+    /**
+     * Keeps only the fittest members, ordered from the fittest down. Members with the same fitness
+     * keep the order they were in. The fitness of every member is read once and the members are
+     * ranked with a single sort, and the kept members are not copied.
+     * @param count The number of members to keep.
+     * @param fitness Reads the fitness of a member's network.
+     */
+    public void retainFittest(int count, ToIntFunction<N> fitness) {
+        int size = networks.size();
+        count = Math.min(count, size);
+
+        // Pack the negated fitness above the index, so sorting the keys ranks the members from the
+        // fittest down and breaks ties by index.
+        long[] order = new long[size];
+        for(int i = 0; i < size; i++) {
+            order[i] = (-(long) fitness.applyAsInt(networks.get(i)) << 32) | i;
+        }
+        Arrays.sort(order);
+
+        int[] keptIDs = new int[Math.max(count, 8)];
+        List<N> kept = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            int index = (int) order[i];
+            keptIDs[i] = ids[index];
+            kept.add(networks.get(index));
+        }
+        ids = keptIDs;
+        networks.clear();
+        networks.addAll(kept);
+    }
+
+    /** Removes every member. */
+    public void clear() {
+        networks.clear();
+    }
+}
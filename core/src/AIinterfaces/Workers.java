@@ -0,0 +1,120 @@
+package AIinterfaces;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Shared pool of worker threads used to spread independent pieces of work, such as the forward
+ * passes of every organism's network, over all cores.
+ */
+public class Workers {
+
+    /** The pool the work is spread over. */
+    private static ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Sets the number of worker threads to use. A single thread runs all work serially on the
+     * calling thread.
+     * @param threads The number of worker threads to use.
+     */
+    public static synchronized void setThreads(int threads) {
+        if(threads != pool.getParallelism()) {
+            pool.shutdown();
+            pool = new ForkJoinPool(Math.max(1, threads));
+        }
+    }
+
+    /**
+     * Returns the number of worker threads in use.
+     * @return The number of worker threads in use.
+     */
+    public static int getThreads() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Runs the supplied task once for every index from 0 up to the supplied count and waits for
+     * all of them to finish. The tasks may run in any order and at the same time, so each task
+     * should only write to state that belongs to its own index.
+     * @param count The number of tasks to run.
+     * @param task The task to run for every index.
+     */
+    public static void forEach(int count, IntConsumer task) {
+        ForkJoinPool pool = Workers.pool;
+        if(count <= 1 || pool.getParallelism() <= 1) {
+            for(int i = 0; i < count; i++) {
+                task.accept(i);
+            }
+        } else {
+            pool.submit(() -> IntStream.range(0, count).parallel().forEach(task)).join();
+        }
+    }
+
+    /**
+     * Runs the supplied task once for every index like {@link #forEach(int, IntConsumer)}, but
+     * lets every task draw from its own random stream. The streams are forked off the current
+     * stream of the calling thread in order of index before any task runs, so the numbers each
+     * task draws do not depend on which thread runs it or when.
+     * @param count The number of tasks to run.
+     * @param task The task to run for every index.
+     */
+    public static void forEachForked(int count, IntConsumer task) {
+        forEach(fork(count), task);
+    }
+
+    /**
+     * Forks the supplied number of random streams off the current stream of the calling thread,
+     * in order of index.
+     * @param count The number of streams to fork.
+     * @return The forked streams.
+     */
+    public static Random[] fork(int count) {
+        Random[] streams = new Random[count];
+        for(int i = 0; i < count; i++) {
+            streams[i] = RandomSource.fork();
+        }
+        return streams;
+    }
+
+    /**
+     * Runs the supplied task once for every index of the supplied streams like
+     * {@link #forEach(int, IntConsumer)}, with the stream of its index installed while it runs.
+     * @param streams The random stream of every task.
+     * @param task The task to run for every index.
+     */
+    public static void forEach(Random[] streams, IntConsumer task) {
+        forEach(streams.length, i -> runWith(streams[i], i, task));
+    }
+
+    /**
+     * Runs the supplied task once for every index of the supplied streams one after another, in
+     * order of index on the calling thread, with the stream of its index installed while it runs.
+     * Used for work that changes shared state, such as handing out innovation numbers, whose
+     * outcome must not depend on which thread gets to it first.
+     * @param streams The random stream of every task.
+     * @param task The task to run for every index.
+     */
+    public static void forEachInOrder(Random[] streams, IntConsumer task) {
+        for(int i = 0; i < streams.length; i++) {
+            runWith(streams[i], i, task);
+        }
+    }
+
+    /**
+     * Runs the supplied task for a single index with the supplied stream installed, putting the
+     * previous stream of the thread back afterwards.
+     * @param stream The random stream to install.
+     * @param index The index to run the task for.
+     * @param task The task to run.
+     */
+    private static void runWith(Random stream, int index, IntConsumer task) {
+        Random previous = RandomSource.use(stream);
+        try {
+            task.accept(index);
+        } finally {
+            RandomSource.use(previous);
+        }
+    }
+}
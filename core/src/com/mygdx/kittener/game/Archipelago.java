@@ -0,0 +1,206 @@
+package com.mygdx.kittener.game;
+
+import AIinterfaces.AlgorithmName;
+import AIinterfaces.MetricsSink;
+import AIinterfaces.NetworkIF.NetworkIF;
+import AIinterfaces.RandomSource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+/**
+ * Evolves several independent populations at once, each in its own headless simulation on its own
+ * thread. Every island plays out and evolves its generations by itself, so the islands scale with
+ * the number of cores without natural selection itself having to run in parallel. Every so many
+ * generations the fittest networks of each island migrate to the next island in a ring, where they
+ * take the place of its least fit organisms before natural selection. The islands wait for each
+ * other only at migrations and between generations. Each island logs its statistics to its own
+ * file. Every island numbers the links of its networks by itself, and migrants are numbered by
+ * the island they arrive on, so an archipelago made from the same seed always evolves the same
+ * networks.
+ */
+public class Archipelago implements AutoCloseable {
+
+    /** The simulation of every island. */
+    private final Simulation[] islands;
+
+    /** The statistics log of every island. */
+    private final MetricsSink[] logs;
+
+    /** The threads the islands run on, one for each island. */
+    private final ExecutorService threads;
+
+    /** The number of generations between two migrations, or zero to never migrate. */
+    private final int migrationInterval;
+
+    /** The number of networks each island sends to the next one on a migration. */
+    private final int migrants;
+
+    /** The random numbers migrations are made with, apart from those of every island. */
+    private final Random migrations;
+
+    /** The number of generations played out so far. */
+    private int generation;
+
+    /**
+     * Constructs the islands. Every island gets its own seed drawn from the supplied seed, so an
+     * archipelago made from the same seed starts out with the same populations. The migrations get
+     * a seed of their own, drawn after those of the islands.
+     * @param width The width of the game world.
+     * @param height The height of the game world.
+     * @param numAgents The number of agents on each island.
+     * @param aiName The algorithm the populations should use.
+     * @param textures The textures to give the game objects.
+     * @param seed The seed the seeds of the islands are drawn from.
+     * @param numIslands The number of islands.
+     * @param migrationInterval The number of generations between two migrations, or zero to never
+     *                          migrate.
+     * @param migrants The number of networks each island sends to the next one on a migration.
+     * @throws IOException If the statistics logs of the islands can not be created.
+     */
+    public Archipelago(int width, int height, int numAgents, AlgorithmName aiName,
+                       GameTextures textures, long seed, int numIslands, int migrationInterval,
+                       int migrants) throws IOException {
+        this.migrationInterval = migrationInterval;
+        this.migrants = migrants;
+        generation = 0;
+
+        Random seeds = new Random(seed);
+        islands = new Simulation[numIslands];
+        logs = new MetricsSink[numIslands];
+        for(int i = 0; i < numIslands; i++) {
+            islands[i] = new Simulation(width, height, numAgents, aiName, textures,
+                    seeds.nextLong());
+            logs[i] = MainGame.createIslandLog(aiName, i);
+            islands[i].getPopulation().setStatistics(logs[i]);
+        }
+        migrations = new Random(seeds.nextLong());
+
+        int[] created = {0};
+        threads = Executors.newFixedThreadPool(numIslands, task -> {
+            Thread thread = new Thread(task, "island-" + created[0]++);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Plays out and evolves one generation on every island at once. If a migration is due, it
+     * happens once every island is scored and before any of them performs natural selection.
+     * @param timestep The time that passes in each step.
+     * @param maxTime The most game time a single generation may take.
+     * @return The highest score achieved this generation on each island.
+     */
+    public int[] runGeneration(float timestep, float maxTime) {
+        int[] highScores = new int[islands.length];
+        runOnIslands(i -> {
+            highScores[i] = islands[i].playGeneration(timestep, maxTime);
+            islands[i].scoreAgents();
+        });
+
+        generation++;
+        if(migrationInterval > 0 && generation % migrationInterval == 0) {
+            migrate();
+        }
+
+        runOnIslands(i -> {
+            islands[i].evolvePopulation();
+            islands[i].nextGeneration();
+        });
+        return highScores;
+    }
+
+    /**
+     * Sends copies of the fittest networks of every island to the next island, where they replace
+     * the least fit organisms. All copies are made before any island takes in its migrants, and
+     * the islands are visited in order, so a migration always moves the same networks and numbers
+     * their new links the same way. Migrations run on the calling thread with their own random
+     * numbers, so they never draw from whichever numbers the thread used last.
+     */
+    private void migrate() {
+        if(islands.length < 2) {
+            return;
+        }
+        Random previous = RandomSource.use(migrations);
+        try {
+            List<List<NetworkIF>> emigrants = new ArrayList<>(islands.length);
+            for(Simulation island : islands) {
+                emigrants.add(island.getPopulation().getFittestNetworks(migrants));
+            }
+            for(int i = 0; i < islands.length; i++) {
+                islands[(i + 1) % islands.length].getPopulation()
+                        .replaceWeakest(emigrants.get(i));
+            }
+        } finally {
+            RandomSource.use(previous);
+        }
+    }
+
+    /**
+     * Runs the supplied task for every island on the island's own thread and waits for all of
+     * them to finish.
+     * @param task The task to run with the index of each island.
+     */
+    private void runOnIslands(IntConsumer task) {
+        List<Future<?>> running = new ArrayList<>(islands.length);
+        for(int i = 0; i < islands.length; i++) {
+            int island = i;
+            running.add(threads.submit(() -> task.accept(island)));
+        }
+        for(int i = 0; i < running.size(); i++) {
+            try {
+                running.get(i).get();
+            } catch(ExecutionException e) {
+                throw new IllegalStateException("Island " + i + " failed", e.getCause());
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for island " + i, e);
+            }
+        }
+    }
+
+    /**
+     * Returns the highest score we have seen on any island over all generations.
+     * @return The highest score we have seen on any island.
+     */
+    public int getHighestOverallScore() {
+        int highest = 0;
+        for(Simulation island : islands) {
+            highest = Math.max(highest, island.getHighestOverallScore());
+        }
+        return highest;
+    }
+
+    /**
+     * Returns the simulation of the island with the supplied index.
+     * @param island The index of the island.
+     * @return The simulation of the island.
+     */
+    public Simulation getIsland(int island) {
+        return islands[island];
+    }
+
+    /**
+     * Returns the number of islands.
+     * @return The number of islands.
+     */
+    public int getIslandCount() {
+        return islands.length;
+    }
+
+    /** Stops the threads of the islands and closes their statistics logs. */
+    @Override
+    public void close() {
+        threads.shutdown();
+        for(MetricsSink log : logs) {
+            log.close();
+        }
+    }
+}
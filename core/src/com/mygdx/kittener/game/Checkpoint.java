@@ -0,0 +1,187 @@
+package com.mygdx.kittener.game;
+
+import AIinterfaces.AlgorithmName;
+import AIinterfaces.ReusedCode;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Saves a headless simulation to a file every so often, so a long run can be stopped and resumed
+ * later. A checkpoint holds the highest score seen so far and everything the population needs to
+ * go on evolving exactly as it would have: every genome, every species with its compatibility
+ * network and staleness, the innovation numbers handed out so far and the state of the random
+ * numbers. It is a compact binary file that starts with a magic number and a version. The
+ * simulation is written to memory on the calling thread, which takes little time, and a
+ * background thread then writes the bytes to the disk while the next generation plays out. They
+ * are written to a temporary file that is only moved over the checkpoint once it is complete, so
+ * a run stopped while saving still leaves the last checkpoint whole.
+ */
+public class Checkpoint implements AutoCloseable {
+
+    /** The first bytes of every checkpoint, "KCKP". */
+    private static final int MAGIC = 0x4B434B50;
+
+    /** The version of the checkpoint format, raised whenever it changes. */
+    private static final int VERSION = 2;
+
+    /** The file the checkpoint is saved to. */
+    private final File file;
+
+    /** The thread the checkpoints are written to the disk on. */
+    private final ExecutorService writer;
+
+    /** The checkpoint being written to the disk, or null. */
+    private Future<?> pending;
+
+    /**
+     * Creates a checkpoint that saves to the supplied file, replacing whatever it holds.
+     * @param file The file to save to.
+     */
+    public Checkpoint(File file) {
+        this.file = file;
+        writer = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "checkpoint-" + file.getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the file the checkpoint is saved to.
+     * @return The file the checkpoint is saved to.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Saves the supplied simulation, which should be between generations. Only waits for the
+     * previous save to reach the disk, and returns before this one does.
+     * @param simulation The simulation to save.
+     * @throws IOException If the simulation can not be written.
+     */
+    public void save(Simulation simulation) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(simulation.getAlgorithmName().name());
+            out.writeInt(simulation.getAgents().size());
+            simulation.writeCheckpoint(out);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        awaitPending();
+        pending = writer.submit(() -> write(buffer));
+    }
+
+    /**
+     * Reads a simulation back from a checkpoint. It goes on evolving exactly as the simulation
+     * that was saved would have.
+     * @param file The file of the checkpoint.
+     * @param width The width of the game world.
+     * @param height The height of the game world.
+     * @param textures The textures to give the game objects.
+     * @return The simulation saved in the checkpoint.
+     * @throws IOException If the file can not be read or is not a checkpoint.
+     */
+    public static Simulation load(File file, int width, int height, GameTextures textures)
+            throws IOException {
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        try(DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if(in.readInt() != MAGIC) {
+                throw new IOException(file + " is not a checkpoint");
+            }
+            int version = in.readInt();
+            if(version != VERSION) {
+                throw new IOException(file + " is a checkpoint of version " + version
+                        + ", which can not be read");
+            }
+            AlgorithmName aiName;
+            try {
+                aiName = AlgorithmName.valueOf(in.readUTF());
+            } catch(IllegalArgumentException e) {
+                throw new IOException(file + " is a checkpoint of an unknown algorithm", e);
+            }
+            int numAgents = ReusedCode.readSize(in);
+            return new Simulation(width, height, numAgents, aiName, textures, in);
+        } catch(EOFException e) {
+            throw new IOException(file + " is cut short", e);
+        }
+    }
+
+    /** Waits for the last save to reach the disk and stops the writer thread. */
+    @Override
+    public void close() {
+        awaitPending();
+        writer.shutdown();
+    }
+
+    /**
+     * Writes the supplied bytes to the temporary file, forces them to the disk and moves the
+     * temporary file over the checkpoint. Run by the writer thread.
+     * @param buffer The bytes of the checkpoint.
+     */
+    private void write(ByteBuffer buffer) {
+        Path target = file.toPath();
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while(buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch(AtomicMoveNotSupportedException e) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch(IOException e) {
+            System.err.println("ERROR: Unable to write checkpoint to " + file);
+        }
+    }
+
+    /** Waits for the checkpoint being written to reach the disk, if there is one. */
+    private void awaitPending() {
+        if(pending == null) {
+            return;
+        }
+        boolean interrupted = false;
+        try {
+            while(true) {
+                try {
+                    pending.get();
+                    break;
+                } catch(InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch(ExecutionException e) {
+            throw new IllegalStateException("Unable to write checkpoint to " + file, e.getCause());
+        } finally {
+            pending = null;
+            if(interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.mygdx.kittener.game;
+
+import com.badlogic.gdx.graphics.Texture;
+
+/**
+ * Holds every texture the game uses. A headless simulation has no graphics context to load
+ * textures into, so it uses an empty set of textures in which every texture is null.
+ */
+public class GameTextures {
+    /** All textures the game should use. */
+    public final Texture bus;
+    public final Texture raceCar;
+    public final Texture yellowCar;
+    public final Texture turtle;
+    public final Texture shortLog;
+    public final Texture mediumLog;
+    public final Texture longLog;
+    public final Texture death;
+    public final Texture catBack;
+    public final Texture catFront;
+    public final Texture catLeft;
+    public final Texture catRight;
+
+    /**
+     * Constructor for the game textures.
+     * @param load True if the textures should be loaded, false if every texture should be left
+     *             null for a simulation that is never drawn.
+     */
+    public GameTextures(boolean load) {
+        bus         = texture(load, "core/assets/bus.png");
+        raceCar     = texture(load, "core/assets/racecar.png");
+        yellowCar   = texture(load, "core/assets/yellow_car.png");
+        turtle      = texture(load, "core/assets/turtle.png");
+        shortLog    = texture(load, "core/assets/log3.png");
+        mediumLog   = texture(load, "core/assets/log4.png");
+        longLog     = texture(load, "core/assets/log5.png");
+        death       = texture(load, "core/assets/death.png");
+        catBack     = texture(load, "core/assets/cat_back.png");
+        catFront    = texture(load, "core/assets/cat_front.png");
+        catLeft     = texture(load, "core/assets/cat_left.png");
+        catRight    = texture(load, "core/assets/cat_right.png");
+    }
+
+    /**
+     * Loads the texture at the supplied path if textures should be loaded.
+     * @param load True if the texture should be loaded.
+     * @param path The path of the texture.
+     * @return The loaded texture or null.
+     */
+    private static Texture texture(boolean load, String path) {
+        return load ? new Texture(path) : null;
+    }
+
+    /**
+     * Removes all textures that have been loaded.
+     */
+    public void dispose() {
+        for(Texture texture : new Texture[] {bus, raceCar, yellowCar, turtle, shortLog, mediumLog,
+                longLog, death, catBack, catFront, catLeft, catRight}) {
+            if(texture != null) {
+                texture.dispose();
+            }
+        }
+    }
+}
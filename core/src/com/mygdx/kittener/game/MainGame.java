@@ -1,13 +1,13 @@
 package com.mygdx.kittener.game;
 
 import AIinterfaces.AlgorithmName;
+import AIinterfaces.MetricsSink;
 import com.badlogic.gdx.Screen;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.sun.tools.javac.Main;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.time.Instant;
 
@@ -45,6 +45,12 @@ public class MainGame extends com.badlogic.gdx.Game {
 
     public static File NETWORK_LOG;
 
+    /** Appends to the statistics log in the background, or null if there is no log. */
+    public static MetricsSink STATS;
+
+    /** Appends to the network log in the background, or null if there is no log. */
+    public static MetricsSink NETWORK_STATS;
+
     /**
      * Passing the application window size to the game.
      * @param width The width of the window.
@@ -54,25 +60,58 @@ public class MainGame extends com.badlogic.gdx.Game {
         this.width  = width;
         this.height = height;
         this.aiName = aiName;
+        createLogs(aiName);
+    }
 
+    /**
+     * Creates the CSV files which the statistics of a run of the supplied algorithm are logged to.
+     * @param aiName The algorithm being run.
+     */
+    public static void createLogs(AlgorithmName aiName) {
+        closeLogs();
         try{
             Instant timestamp = Instant.now();
+            new File("logs").mkdirs();
             MainGame.STAT_LOG = new File("logs",aiName + "-" + timestamp.getEpochSecond() + ".csv" );
-            MainGame.STAT_LOG.createNewFile();
-            FileWriter statSetup = new FileWriter(MainGame.STAT_LOG);
-            statSetup.write("Generation,Average,Maximum,Color");
-            statSetup.close();
+            MainGame.STATS = new MetricsSink(MainGame.STAT_LOG);
+            MainGame.STATS.write("Generation,Average,Maximum,Color");
             MainGame.NETWORK_LOG = new File("logs", aiName + "-Network-" + timestamp.getEpochSecond() + ".csv" );
-            MainGame.STAT_LOG.createNewFile();
-            FileWriter networkSetup = new FileWriter(MainGame.NETWORK_LOG);
-            networkSetup.write("Generation,NetworkID,1,2,3,4,5,6,7,8,9,10");
-            networkSetup.close();
+            MainGame.NETWORK_STATS = new MetricsSink(MainGame.NETWORK_LOG);
+            MainGame.NETWORK_STATS.write("Generation,NetworkID,1,2,3,4,5,6,7,8,9,10");
         } catch (IOException e) {
             e.printStackTrace();
             //System.err.println("ERROR: Unable to create statistics log file");
 
         }
+    }
 
+    /**
+     * Creates the CSV file which the statistics of one island of an island run of the supplied
+     * algorithm are logged to.
+     * @param aiName The algorithm being run.
+     * @param island The number of the island.
+     * @return The log of the island.
+     * @throws IOException If the log can not be created.
+     */
+    public static MetricsSink createIslandLog(AlgorithmName aiName, int island) throws IOException {
+        Instant timestamp = Instant.now();
+        new File("logs").mkdirs();
+        File log = new File("logs", aiName + "-Island" + island + "-" + timestamp.getEpochSecond() + ".csv");
+        MetricsSink stats = new MetricsSink(log);
+        stats.write("Generation,Average,Maximum,Color");
+        return stats;
+    }
+
+    /** Writes out everything logged so far and closes the logs, if there are any. */
+    public static void closeLogs() {
+        if(STATS != null) {
+            STATS.close();
+            STATS = null;
+        }
+        if(NETWORK_STATS != null) {
+            NETWORK_STATS.close();
+            NETWORK_STATS = null;
+        }
     }
 
     /**
@@ -135,5 +174,6 @@ public class MainGame extends com.badlogic.gdx.Game {
         gameScreen.dispose();
         batch.dispose();
         font.dispose();
+        closeLogs();
     }
 }
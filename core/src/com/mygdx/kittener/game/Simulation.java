@@ -0,0 +1,621 @@
+package com.mygdx.kittener.game;
+
+import AIinterfaces.AlgorithmName;
+import AIinterfaces.ControllerIF;
+import AIinterfaces.NetworkIF.NetworkIF;
+import AIinterfaces.PopulationIF.NetworkPopulationIF;
+import AIinterfaces.Workers;
+import com.badlogic.gdx.math.Vector2;
+import com.mygdx.kittener.remote.RemoteEvaluator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntConsumer;
+
+/**
+ * The Simulation class contains all game logic of Kittener without any of the rendering. The
+ * GameScreen steps it once every frame, while a headless trainer can step it with a fixed
+ * timestep as fast as the CPU allows.
+ * @author Brandon Townsend
+ * @version 21 January 2020
+ * @additions Brooke Kiser and Tyler McVeigh
+ */
+public class Simulation {
+    /** The number of directions an agent's network can decide between. */
+    private static final int NUM_OUTPUTS = 5;
+
+    /** The width of the game world. */
+    private final int width;
+
+    /** The height of the game world. */
+    private final int height;
+
+    /** The number of agents we should spawn. */
+    private final int numAgents;
+
+    /** All textures the game objects should use. */
+    private final GameTextures textures;
+
+    /** Variable to keep track of the highest overall score we have seen. */
+    private int highestOverallScore = 0;
+
+    /** Left-side bound of the map for spawning hazards/platforms. */
+    private final int leftBounds;
+
+    /** Right-side bound of the map for spawning hazards/platforms. */
+    private final int rightBounds;
+
+    /** List of all hazards in the game. */
+    private final ArrayList<Hazard> hazards;
+
+    /** List of all agents in the game. */
+    private final ArrayList<Agent> agents;
+
+    /** The algorithm the population uses, or null if there is no population. */
+    private AlgorithmName aiName;
+
+    /** Population of all organisms in the game, or null if the agents can not evolve. */
+    private NetworkPopulationIF population;
+
+    /** Decides the moves of the agents, which is the population unless there is none. */
+    private ControllerIF controller;
+
+    /** The agents that are still alive this step, in the order they were spawned. */
+    private final Agent[] living;
+
+    /** The direction each living agent's network decided on this step. */
+    private final int[] directions;
+
+    /** The network output of each living agent, reused every step so no new arrays are made. */
+    private final double[][] outputs;
+
+    /** Lets the living agent at the supplied index decide on a direction. Made once to be reused. */
+    private final IntConsumer decideDirection = this::decideDirection;
+
+    /**
+     * Constructor for the game logic.
+     * @param width The width of the game world.
+     * @param height The height of the game world.
+     * @param numAgents The number of agents to spawn.
+     * @param aiName The algorithm the population of agents should use.
+     * @param textures The textures to give the game objects.
+     */
+    public Simulation(int width, int height, int numAgents, AlgorithmName aiName,
+                      GameTextures textures) {
+        this(width, height, numAgents, aiName, textures, new Random().nextLong());
+    }
+
+    /**
+     * Constructor for the game logic whose population evolves from the supplied seed. The game
+     * itself has no randomness, so two simulations with the same seed play out the same way.
+     * @param width The width of the game world.
+     * @param height The height of the game world.
+     * @param numAgents The number of agents to spawn.
+     * @param aiName The algorithm the population of agents should use.
+     * @param textures The textures to give the game objects.
+     * @param seed The seed the population makes and evolves its networks with.
+     */
+    public Simulation(int width, int height, int numAgents, AlgorithmName aiName,
+                      GameTextures textures, long seed) {
+        this(width, height, numAgents, textures, (ControllerIF) null);
+
+        // Assigning our constructed agents to our population.
+        if (aiName == AlgorithmName.NEAT){
+            population = new neat.Population(agents, hazards.size(), NUM_OUTPUTS, seed);
+        }else if(aiName == AlgorithmName.HyperNEAT) {
+            population = new hyperneat.Population(agents, hazards.size(), NUM_OUTPUTS, seed);
+        /*}else if(aiName == AlgorithmName.SUNA){
+            population = new suna.Population(agents, hazards.size(), NUM_OUTPUTS, seed);*/
+        }else{
+            System.exit(10);
+        }
+        this.aiName = aiName;
+        controller = population;
+    }
+
+    /**
+     * Constructor for the game logic whose population is read back from a checkpoint written by
+     * writeCheckpoint. The population goes on evolving exactly as the one that was written would
+     * have, and every agent starts out with the color of its species.
+     * @param width The width of the game world.
+     * @param height The height of the game world.
+     * @param numAgents The number of agents to spawn.
+     * @param aiName The algorithm the population of agents uses.
+     * @param textures The textures to give the game objects.
+     * @param in The input to read the checkpoint from.
+     * @throws IOException If the input can not be read or does not hold a population of the
+     * supplied algorithm.
+     */
+    public Simulation(int width, int height, int numAgents, AlgorithmName aiName,
+                      GameTextures textures, DataInput in) throws IOException {
+        this(width, height, numAgents, textures, (ControllerIF) null);
+
+        highestOverallScore = in.readInt();
+        if (aiName == AlgorithmName.NEAT){
+            population = new neat.Population(agents, in);
+        }else if(aiName == AlgorithmName.HyperNEAT) {
+            population = new hyperneat.Population(agents, in);
+        }else{
+            throw new IOException("Checkpoints of " + aiName + " populations are not supported");
+        }
+        this.aiName = aiName;
+        controller = population;
+        for (Agent agent : agents) {
+            population.assignColor(agent);
+        }
+    }
+
+    /**
+     * Constructor for the game logic without a population, whose agents are controlled by the
+     * supplied controller instead. Used to play out networks received from another process,
+     * which can not evolve.
+     * @param width The width of the game world.
+     * @param height The height of the game world.
+     * @param numAgents The number of agents to spawn.
+     * @param textures The textures to give the game objects.
+     * @param controller Decides the moves of the agents by their ID.
+     */
+    public Simulation(int width, int height, int numAgents, GameTextures textures,
+                      ControllerIF controller) {
+        this.width = width;
+        this.height = height;
+        this.numAgents = numAgents;
+        this.textures = textures;
+
+        // Setting up some needed game variables.
+        leftBounds = (-32 * 5);
+        rightBounds = width + (32 * 5);
+
+        // Creating the map objects.
+        hazards = new ArrayList<>();
+        spawnMapObjects();
+
+        // Creating the game agents.
+        agents = new ArrayList<>(numAgents);
+        spawnAgents();
+        living = new Agent[numAgents];
+        directions = new int[numAgents];
+        outputs = new double[numAgents][NUM_OUTPUTS];
+        this.controller = controller;
+    }
+
+    /**
+     * Adds the agents to our list of agents.
+     */
+    private void spawnAgents() {
+        for(int i = 0; i < numAgents; i++) {
+            Agent agent = new Agent(i, textures.catBack, hazards.size(), width / 2f);
+            agents.add(agent);
+        }
+    }
+
+    /**
+     * Helper method used to spawn various map objects. Hazards take the form of:
+     *      width, height, column (pixels), row (pixels), texture, and speed.
+     */
+    private void spawnMapObjects() {
+        // Hazards on the seventh row from the bottom.
+        hazards.add(new Hazard(32, 32, -16, 32*6, textures.yellowCar, Speeds.RIGHT_MED.speed()));
+        hazards.add(new Hazard(32, 32, -80, 32*6, textures.yellowCar, Speeds.RIGHT_MED.speed()));
+        hazards.add(new Hazard(32, 32, leftBounds+16, 32*6, textures.yellowCar, Speeds.RIGHT_MED.speed()));
+
+        // Hazards on the eighth row from the bottom.
+        hazards.add(new Hazard(64, 32, width, 32*7, textures.bus, Speeds.LEFT_SLOW.speed()));
+        hazards.add(new Hazard(64, 32, rightBounds, 32*7, textures.bus, Speeds.LEFT_SLOW.speed()));
+
+        // Hazards on the ninth row from the bottom.
+        hazards.add(new Hazard(32, 32, rightBounds, 32*8, textures.raceCar, Speeds.LEFT_FAST.speed()));
+
+        // Hazards on the tenth row from the bottom.
+        hazards.add(new Hazard(64, 32, width+32, 32*9, textures.bus, Speeds.LEFT_SLOW.speed()));
+        hazards.add(new Hazard(64, 32, rightBounds-32, 32*9, textures.bus, Speeds.LEFT_SLOW.speed()));
+
+        // Hazards on the eleventh row from the bottom.
+        hazards.add(new Hazard(32, 32, -32, 32*10, textures.yellowCar, Speeds.RIGHT_MED.speed()));
+        hazards.add(new Hazard(32, 32, -96, 32*10, textures.yellowCar, Speeds.RIGHT_MED.speed()));
+        hazards.add(new Hazard(32, 32, leftBounds, 32*10, textures.yellowCar, Speeds.RIGHT_MED.speed()));
+    }
+
+    /**
+     * Advances the game by one step: moves the hazards, lets every agent decide on and make its
+     * move, and then checks for collisions.
+     * @param delta The time that passes in this step.
+     */
+    public void update(float delta) {
+        // Each hazard moving.
+        updateHazards(delta);
+
+        // Each agent moving.
+        updateAgents(delta);
+
+        // Check collision.
+        checkCollisions();
+    }
+
+    /**
+     * Plays out a whole generation with a fixed timestep and without any rendering. Once every
+     * agent is dead, or the supplied amount of game time has passed, the final fitness values
+     * are handed to the population, natural selection is performed and the game is reset for
+     * the next generation.
+     * @param timestep The time that passes in each step.
+     * @param maxTime The most game time a single generation may take.
+     * @return The highest score achieved this generation.
+     */
+    public int runGeneration(float timestep, float maxTime) {
+        int highScore = playGeneration(timestep, maxTime);
+        endGeneration();
+        nextGeneration();
+        return highScore;
+    }
+
+    /**
+     * Has the supplied evaluator play out a whole generation on its workers instead of in this
+     * game, then hands out the final fitness values, performs natural selection and resets the
+     * game for the next generation. The agents do not affect each other, so this gives the same
+     * scores as playing the generation out here.
+     * @param evaluator The evaluator to play the generation out with.
+     * @param timestep The time that passes in each step.
+     * @param maxTime The most game time a single generation may take.
+     * @return The highest score achieved this generation.
+     */
+    public int runGeneration(RemoteEvaluator evaluator, float timestep, float maxTime) {
+        int highScore = playGenerationRemotely(evaluator, timestep, maxTime);
+        endGeneration();
+        nextGeneration();
+        return highScore;
+    }
+
+    /**
+     * Has the supplied evaluator play out a whole generation with the networks of the population
+     * and gives every agent the score its network achieved.
+     * @param evaluator The evaluator to play the generation out with.
+     * @param timestep The time that passes in each step.
+     * @param maxTime The most game time a single generation may take.
+     * @return The highest score achieved this generation.
+     */
+    public int playGenerationRemotely(RemoteEvaluator evaluator, float timestep, float maxTime) {
+        List<NetworkIF> networks = new ArrayList<>(agents.size());
+        for (Agent agent : agents) {
+            networks.add(population.getNetwork(agent.getId()));
+        }
+        int[] scores = evaluator.evaluate(networks, width, height, timestep, maxTime);
+        for (int i = 0; i < agents.size(); i++) {
+            agents.get(i).setScore(scores[i]);
+        }
+        return getHighScore();
+    }
+
+    /**
+     * Plays out a whole generation with a fixed timestep and without any rendering, until every
+     * agent is dead or the supplied amount of game time has passed.
+     * @param timestep The time that passes in each step.
+     * @param maxTime The most game time a single generation may take.
+     * @return The highest score achieved this generation.
+     */
+    public int playGeneration(float timestep, float maxTime) {
+        float time = 0f;
+        while(!areAllAgentsDead() && time < maxTime) {
+            update(timestep);
+            time += timestep;
+        }
+        return getHighScore();
+    }
+
+    /**
+     * Sets the final fitness values of this generation, performs natural selection and gives
+     * every agent the color of its species.
+     */
+    public void endGeneration() {
+        scoreAgents();
+        evolvePopulation();
+    }
+
+    /** Hands the final score of every agent this generation to the population as its fitness. */
+    public void scoreAgents() {
+        for (Agent agent : agents) {
+            population.assignFitness(agent.getId(), agent.getScore());
+        }
+    }
+
+    /**
+     * Performs natural selection on the scored population and gives every agent the color of its
+     * species.
+     */
+    public void evolvePopulation() {
+        population.naturalSelection();
+        for (Agent agent : agents) {
+            population.assignColor(agent);
+        }
+    }
+
+    /**
+     * Resets the game objects back to their original positions and moves the population on to
+     * the next generation.
+     */
+    public void nextGeneration() {
+        resetGame();
+        population.incrementGeneration();
+    }
+
+    /**
+     * Checks to see whether agents have collided with any map objects.
+     */
+    private void checkCollisions() {
+        for(int i = 0; i < agents.size(); i++) {
+            Agent agent = agents.get(i);
+            if(!agent.isDead()) {
+                for(int j = 0; j < hazards.size(); j++) {
+                    Hazard hazard = hazards.get(j);
+                    if(hazard.overlaps(agent)) {
+                        agent.setTexture(textures.death);
+                        agent.setDead(true);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method to control the hazards' movements.
+     * @param delta The time between two frames.
+     */
+    private void updateHazards(float delta) {
+        for(int i = 0; i < hazards.size(); i++) {
+            Hazard hazard = hazards.get(i);
+            hazard.setX(hazard.getX() + (hazard.getSpeed() * delta));
+
+            if(hazard.getX() > rightBounds) {
+                hazard.setX(leftBounds);
+            } else if(hazard.getX() < leftBounds) {
+                hazard.setX(rightBounds);
+            }
+        }
+    }
+
+    /**
+     * Helper method that controls each agents' movements. Every living agent first looks around,
+     * then the networks of all living agents decide on a direction in parallel, and finally the
+     * agents make their moves one after another in a fixed order. The vision and output arrays are
+     * reused every step, so a step does not make any new objects.
+     * @param delta The time between two frames.
+     */
+    private void updateAgents(float delta) {
+        // Each living agent looks around.
+        int numLiving = 0;
+        for(int i = 0; i < agents.size(); i++) {
+            Agent agent = agents.get(i);
+            if(!agent.isDead()) {
+                updateAgentVision(agent);
+                living[numLiving++] = agent;
+            }
+        }
+
+        // The network of each living agent decides on a direction.
+        Workers.forEach(numLiving, decideDirection);
+
+        // Each living agent moves in its decided direction.
+        for(int i = 0; i < numLiving; i++) {
+            Agent agent = living[i];
+            moveAgent(agent, directions[i], delta);
+
+            int prevScore = agent.getScore();
+            int newScore = calculateAgentScore(agent);
+
+            // If the agent has not increased in score, add to the stillness timer.
+            if(prevScore >= newScore) {
+                agent.setStillTimer(agent.getStillTimer() + delta);
+
+                // If an agent is still for longer than 8 seconds, we kill it off.
+                if(agent.getStillTimer() > 8f) {
+                    agent.setTexture(textures.death);
+                    agent.setDead(true);
+                }
+            } else {
+                agent.setStillTimer(0);
+            }
+        }
+    }
+
+    /**
+     * Lets the network of the living agent at the supplied index decide on a direction.
+     * @param i The index of the living agent.
+     */
+    private void decideDirection(int i) {
+        Agent agent = living[i];
+        double[] output = outputs[i];
+        // The array is reused by whichever agent is in this slot next step. A network with fewer
+        // outputs, such as a HyperNEAT crossover baby, leaves the rest alone, so whatever an
+        // earlier agent wrote there is cleared first and can never be picked.
+        Arrays.fill(output, Double.NEGATIVE_INFINITY);
+        controller.getNetworkOutput(agent.getId(), agent.getVision(), output);
+
+        int dir = 0;
+        for(int j = 0; j < output.length; j++) {
+            if(output[j] > output[dir]) {
+                dir = j;
+            }
+        }
+        directions[i] = dir;
+    }
+
+    /**
+     * Updates the agent's vision array based on the distance between the agent and the hazards
+     * of the game. The distances are written into the agent's own vision array.
+     * @param agent The agent whose vision array should be updated.
+     */
+    private void updateAgentVision(Agent agent) {
+        float[] vision = agent.getVision();
+
+        for(int i = 0; i < hazards.size(); i++) {
+            Hazard hazard = hazards.get(i);
+
+            // Set the value in our vision array to the distance between the agent and all hazards.
+            // NOTE: I'm dividing by 32 as that's the tile length and I want to reduce the values
+            // of the distances, as they seem very large initially.
+            vision[i] = Vector2.dst(hazard.getX(), hazard.getY(), agent.getX(), agent.getY()) / 32;
+        }
+    }
+
+    /**
+     * Moves a specified agent in a supplied direction and makes sure the agent does not escape
+     * the game bounds.
+     * @param agent The agent to move.
+     * @param direction The direction in which the agent should move.
+     * @param delta The time between frames.
+     */
+    private void moveAgent(Agent agent, int direction, float delta) {
+        switch(direction) {
+            case 0: // Moving up.
+                agent.setY(agent.getY() + Speeds.RIGHT_MED.move(delta));
+                agent.setTexture(textures.catBack);
+                break;
+            case 1: // Moving down.
+                agent.setY(agent.getY() + Speeds.LEFT_MED.move(delta));
+                agent.setTexture(textures.catFront);
+                break;
+            case 2: // Moving left.
+                agent.setX(agent.getX() + Speeds.LEFT_MED.move(delta));
+                agent.setTexture(textures.catLeft);
+                break;
+            case 3: // Moving right.
+                agent.setX(agent.getX() + Speeds.RIGHT_MED.move(delta));
+                agent.setTexture(textures.catRight);
+                break;
+            default: // Choosing not to move.
+                break;
+        }
+
+        // Make sure the agents do not escape the game bounds.
+        if(agent.getX() < 0) {
+            agent.setX(0);
+        } else if(agent.getX() + agent.getWidth() > width) {
+            agent.setX(width - agent.getWidth());
+        }
+        if(agent.getY() < 0) {
+            agent.setY(0);
+        } else if(agent.getY() >= height) {
+            agent.setY(0f);
+            agent.setLastY(0f);
+        }
+    }
+
+    /**
+     * Calculates the score an agent should be set to.
+     * @param agent The agent to calculate the score for.
+     * @return The score.
+     */
+    private int calculateAgentScore(Agent agent) {
+        int prevScore = agent.getScore();
+        int score = 0;
+        float lastY = agent.getLastY();
+
+        if(agent.getY() > lastY) {
+            score = (int) (agent.getY() - lastY) * 10 + prevScore;
+            agent.setScore(score);
+            agent.setLastY(agent.getY());
+        }
+
+        return score;
+    }
+
+    /**
+     * Returns the highest score achieved this generation.
+     * @return The highest score achieved this generation.
+     */
+    public int getHighScore() {
+        int highScore = 0;
+        for(Agent agent : agents) {
+            if(agent.getScore() > highScore) {
+                highScore = agent.getScore();
+            }
+        }
+
+        if(highScore > highestOverallScore) {
+            highestOverallScore = highScore;
+        }
+        return highScore;
+    }
+
+    /**
+     * Returns the highest score we have seen over all generations.
+     * @return The highest score we have seen over all generations.
+     */
+    public int getHighestOverallScore() {
+        return highestOverallScore;
+    }
+
+    /**
+     * Checks to see whether all of our agents are dead.
+     * @return True if all agents are dead, false otherwise.
+     */
+    public boolean areAllAgentsDead() {
+        for(int i = 0; i < agents.size(); i++) {
+            Agent agent = agents.get(i);
+            if(!agent.isDead()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Resets the game objects back to their original positions for the next generation.
+     */
+    private void resetGame() {
+        for(Hazard hazard : hazards) {
+            hazard.reset();
+        }
+        for(Agent agent : agents) {
+            agent.reset(width / 2f);
+            agent.setTexture(textures.catBack);
+        }
+    }
+
+    /**
+     * Returns the list of all hazards in the game.
+     * @return The list of all hazards in the game.
+     */
+    public ArrayList<Hazard> getHazards() {
+        return hazards;
+    }
+
+    /**
+     * Returns the list of all agents in the game.
+     * @return The list of all agents in the game.
+     */
+    public ArrayList<Agent> getAgents() {
+        return agents;
+    }
+
+    /**
+     * Writes the highest score seen so far and the population to a checkpoint, from which the
+     * game can be read back to go on evolving. Should be called between generations.
+     * @param out The output to write to.
+     * @throws IOException If the output can not be written to.
+     */
+    public void writeCheckpoint(DataOutput out) throws IOException {
+        out.writeInt(highestOverallScore);
+        population.writeCheckpoint(out);
+    }
+
+    /**
+     * Returns the algorithm the population uses.
+     * @return The algorithm the population uses, or null if there is no population.
+     */
+    public AlgorithmName getAlgorithmName() {
+        return aiName;
+    }
+
+    /**
+     * Returns the population of all organisms in the game.
+     * @return The population of all organisms in the game.
+     */
+    public NetworkPopulationIF getPopulation() {
+        return population;
+    }
+}
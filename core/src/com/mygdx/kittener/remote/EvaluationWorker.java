@@ -0,0 +1,181 @@
+package com.mygdx.kittener.remote;
+
+import com.mygdx.kittener.game.Agent;
+import com.mygdx.kittener.game.GameTextures;
+import com.mygdx.kittener.game.Simulation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Plays out networks sent by a coordinator and sends back their scores. A worker listens on a
+ * port and serves every coordinator that connects on a thread of its own, so one worker process
+ * can serve several coordinators, and one coordinator can spread its population over several
+ * worker processes. A worker holds no state between jobs, which is what lets a coordinator send
+ * a job to another worker when one is lost. The protocol has no authentication, so a worker only
+ * listens on the loopback address unless it is told to listen on another one.
+ */
+public class EvaluationWorker implements AutoCloseable {
+
+    /** The number of coordinators that may wait to be accepted at once. */
+    private static final int BACKLOG = 50;
+
+    /** The socket coordinators connect to. */
+    private final ServerSocket server;
+
+    /**
+     * Opens a worker on the supplied port of the loopback address, so only coordinators on the
+     * same host can connect.
+     * @param port The port to listen on, or zero for any free port.
+     * @throws IOException If the port can not be listened on.
+     */
+    public EvaluationWorker(int port) throws IOException {
+        this(port, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * Opens a worker on the supplied port of the supplied local address. Any host that can reach
+     * the address can have the worker play out networks.
+     * @param port The port to listen on, or zero for any free port.
+     * @param bindAddress The local address to listen on.
+     * @throws IOException If the port can not be listened on.
+     */
+    public EvaluationWorker(int port, InetAddress bindAddress) throws IOException {
+        server = new ServerSocket(port, BACKLOG, bindAddress);
+    }
+
+    /**
+     * Returns the port this worker listens on.
+     * @return The port this worker listens on.
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /** Serves every coordinator that connects until the worker is closed. */
+    public void serve() {
+        while(!server.isClosed()) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch(SocketException e) {
+                // Closed while waiting for a coordinator.
+                return;
+            } catch(IOException e) {
+                System.err.println("ERROR: Unable to accept a coordinator: " + e.getMessage());
+                continue;
+            }
+            Thread thread = new Thread(() -> handle(socket),
+                    "evaluation-" + socket.getRemoteSocketAddress());
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Answers the requests of one coordinator until it shuts the connection down or is lost.
+     * @param socket The connection to the coordinator.
+     */
+    private void handle(Socket socket) {
+        try(Socket connection = socket) {
+            connection.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(connection.getInputStream()));
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(connection.getOutputStream()));
+            Protocol.writeGreeting(out);
+            out.flush();
+
+            while(true) {
+                byte request = in.readByte();
+                if(request == Protocol.SHUTDOWN) {
+                    return;
+                } else if(request != Protocol.EVALUATE) {
+                    throw new IOException("Unknown request " + request);
+                }
+                int jobID = in.readInt();
+                int width = in.readInt();
+                int height = in.readInt();
+                float timestep = in.readFloat();
+                float maxTime = in.readFloat();
+                int[] scores = evaluate(read(in, Protocol.readCount(in)), width, height,
+                        timestep, maxTime);
+
+                out.writeInt(jobID);
+                out.writeInt(scores.length);
+                for(int score : scores) {
+                    out.writeInt(score);
+                }
+                out.flush();
+            }
+        } catch(EOFException e) {
+            // The coordinator went away without shutting down.
+        } catch(IOException e) {
+            System.err.println("ERROR: Lost coordinator " + socket.getRemoteSocketAddress()
+                    + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the supplied number of networks written by GenomeCodec.
+     * @param in The input to read from.
+     * @param count The number of networks to read.
+     * @return The networks, in the order they were written.
+     * @throws IOException If the input can not be read or does not hold the networks.
+     */
+    public static List<BiConsumer<float[], double[]>> read(DataInput in, int count)
+            throws IOException {
+        List<BiConsumer<float[], double[]>> networks = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            networks.add(GenomeCodec.read(in));
+        }
+        return networks;
+    }
+
+    /**
+     * Plays out one generation in which every agent is controlled by one of the supplied
+     * networks, and returns the score of every agent.
+     * @param networks The networks, one for each agent.
+     * @param width The width of the game world.
+     * @param height The height of the game world.
+     * @param timestep The time that passes in each step.
+     * @param maxTime The most game time the generation may take.
+     * @return The score each network achieved, in the order of the networks.
+     */
+    public static int[] evaluate(List<BiConsumer<float[], double[]>> networks, int width,
+                                 int height, float timestep, float maxTime) {
+        Simulation simulation = new Simulation(width, height, networks.size(),
+                new GameTextures(false),
+                (id, vision, output) -> networks.get(id).accept(vision, output));
+        simulation.playGeneration(timestep, maxTime);
+
+        List<Agent> agents = simulation.getAgents();
+        int[] scores = new int[agents.size()];
+        for(int i = 0; i < scores.length; i++) {
+            scores[i] = agents.get(i).getScore();
+        }
+        return scores;
+    }
+
+    /** Stops accepting coordinators. Coordinators already connected are served until they leave. */
+    @Override
+    public void close() {
+        try {
+            server.close();
+        } catch(IOException e) {
+            System.err.println("ERROR: Unable to close the evaluation worker");
+        }
+    }
+}
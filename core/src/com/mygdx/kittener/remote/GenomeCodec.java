@@ -0,0 +1,79 @@
+package com.mygdx.kittener.remote;
+
+import AIinterfaces.CompiledNetwork;
+import AIinterfaces.NetworkIF.NetworkIF;
+import hyperneat.CPPN;
+import hyperneat.Substrate;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.function.BiConsumer;
+
+/**
+ * Writes the networks of organisms in a compact binary form an evaluation worker can play out,
+ * and reads them back on the worker. Rather than the whole genome with its innovation numbers and
+ * disabled links, only what is needed to run the network is sent: the compiled network of a NEAT
+ * organism, and the compiled CPPN network together with the substrate sizes and activation seed
+ * of a HyperNEAT organism, so the worker builds the very same substrate.
+ */
+public final class GenomeCodec {
+
+    /** Marks a network that is run as it is, such as the network of a NEAT organism. */
+    private static final byte NETWORK = 1;
+
+    /** Marks a CPPN whose substrate is run. */
+    private static final byte SUBSTRATE = 2;
+
+    /** The codec only has static methods. */
+    private GenomeCodec() {
+    }
+
+    /**
+     * Writes the supplied network so that {@link #read(DataInput)} can read it back.
+     * @param network The network to write.
+     * @param out The output to write to.
+     * @throws IOException If the output can not be written to.
+     */
+    public static void write(NetworkIF network, DataOutput out) throws IOException {
+        if(network instanceof CPPN) {
+            CPPN cppn = (CPPN) network;
+            out.writeByte(SUBSTRATE);
+            out.writeInt(cppn.getInputSize());
+            out.writeInt(cppn.getOutputSize());
+            out.writeLong(cppn.getActivationSeed());
+            new CompiledNetwork(cppn.getCPPNetwork()).write(out);
+        } else {
+            out.writeByte(NETWORK);
+            new CompiledNetwork(network).write(out);
+        }
+    }
+
+    /**
+     * Reads back a network written by {@link #write(NetworkIF, DataOutput)}. The network is
+     * returned as what it is needed for: writing its output for some vision into an array.
+     * @param in The input to read from.
+     * @return Writes the output of the network for the supplied vision into the supplied array.
+     * @throws IOException If the input can not be read or does not hold a network.
+     */
+    public static BiConsumer<float[], double[]> read(DataInput in) throws IOException {
+        byte type = in.readByte();
+        switch(type) {
+            case NETWORK:
+                return CompiledNetwork.read(in)::feedForward;
+            case SUBSTRATE:
+                int inputSize = in.readInt();
+                int outputSize = in.readInt();
+                long activationSeed = in.readLong();
+                if(!CPPN.fitsSubstrate(inputSize, outputSize)) {
+                    throw new IOException("Malformed substrate of " + inputSize + " inputs and "
+                            + outputSize + " outputs");
+                }
+                Substrate substrate = CPPN.buildSubstrate(CompiledNetwork.read(in), inputSize,
+                        outputSize, activationSeed);
+                return substrate::feedForward;
+            default:
+                throw new IOException("Unknown network type " + type);
+        }
+    }
+}
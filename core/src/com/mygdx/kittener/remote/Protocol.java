@@ -0,0 +1,82 @@
+package com.mygdx.kittener.remote;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The messages a coordinator and an evaluation worker exchange over a socket. When a coordinator
+ * connects, the worker first sends MAGIC and VERSION so the coordinator can tell it is talking to
+ * a worker it understands. The coordinator then sends one request at a time and the worker answers
+ * each one before the next is sent.
+ * <ul>
+ *     <li>EVALUATE, the job ID, the width and height of the game world, the timestep, the most
+ *     game time, the number of networks and then every network as written by GenomeCodec. The
+ *     worker answers with the job ID, the number of networks and the score of every network in
+ *     the same order.</li>
+ *     <li>SHUTDOWN, after which the worker closes the connection.</li>
+ * </ul>
+ * Every number is written big-endian as by a DataOutput.
+ */
+public final class Protocol {
+
+    /** Sent by a worker first, the letters "KITN". */
+    public static final int MAGIC = 0x4B49544E;
+
+    /** The version of the protocol, sent by a worker after MAGIC. */
+    public static final int VERSION = 1;
+
+    /** Asks the worker to play out a job of networks and send back their scores. */
+    public static final byte EVALUATE = 1;
+
+    /** Tells the worker the coordinator is done with the connection. */
+    public static final byte SHUTDOWN = 2;
+
+    /** The most networks a single job may hold. */
+    public static final int MAX_NETWORKS = 1 << 16;
+
+    /** The protocol only has constants and static methods. */
+    private Protocol() {
+    }
+
+    /**
+     * Writes what a worker sends when a coordinator connects.
+     * @param out The output to the coordinator.
+     * @throws IOException If the output can not be written to.
+     */
+    public static void writeGreeting(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    /**
+     * Reads what a worker sends when a coordinator connects and checks that the worker speaks
+     * this version of the protocol.
+     * @param in The input from the worker.
+     * @throws IOException If the input can not be read or the worker speaks another protocol.
+     */
+    public static void readGreeting(DataInput in) throws IOException {
+        if(in.readInt() != MAGIC) {
+            throw new IOException("Not an evaluation worker");
+        }
+        int version = in.readInt();
+        if(version != VERSION) {
+            throw new IOException("Evaluation worker speaks protocol version " + version
+                    + " instead of " + VERSION);
+        }
+    }
+
+    /**
+     * Reads the number of networks in a job or answer and checks that it is sensible.
+     * @param in The input to read from.
+     * @return The number of networks.
+     * @throws IOException If the input can not be read or the number is not sensible.
+     */
+    public static int readCount(DataInput in) throws IOException {
+        int count = in.readInt();
+        if(count < 0 || count > MAX_NETWORKS) {
+            throw new IOException("Malformed number of networks " + count);
+        }
+        return count;
+    }
+}
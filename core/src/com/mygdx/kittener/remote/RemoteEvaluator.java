@@ -0,0 +1,313 @@
+package com.mygdx.kittener.remote;
+
+import AIinterfaces.NetworkIF.NetworkIF;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plays out the networks of a population on evaluation workers in other processes, usually
+ * several worker processes on the same host so that no single heap grows large enough for its
+ * garbage collection to stall every evaluation. The networks are split into a few jobs per
+ * worker, which the workers take from a shared queue, so faster workers take on more of them.
+ * When a worker is lost its job goes back on the queue for the other workers and the worker is
+ * not used again. Once every worker is lost, the remaining jobs are played out in this process.
+ */
+public class RemoteEvaluator implements AutoCloseable {
+
+    /** The number of jobs the networks are split into for each worker. */
+    private static final int JOBS_PER_WORKER = 2;
+
+    /** The milliseconds to wait for a worker to accept a connection. */
+    private static final int CONNECT_TIMEOUT = 10 * 1000;
+
+    /** The milliseconds to wait for a worker to answer before it is considered lost. */
+    private static final int READ_TIMEOUT = 10 * 60 * 1000;
+
+    /** The workers that have not been lost, one thread each. */
+    private final List<Connection> workers;
+
+    /** The threads that talk to the workers. */
+    private final ExecutorService threads;
+
+    /** The ID of the next job. */
+    private int nextJobID;
+
+    /**
+     * Connects to the workers at the supplied addresses. Workers that can not be reached are
+     * reported and left out.
+     * @param addresses The addresses of the workers.
+     * @throws IOException If none of the workers can be reached.
+     */
+    public RemoteEvaluator(List<InetSocketAddress> addresses) throws IOException {
+        workers = new ArrayList<>(addresses.size());
+        for(InetSocketAddress address : addresses) {
+            try {
+                workers.add(new Connection(address));
+            } catch(IOException e) {
+                System.err.println("ERROR: Unable to reach evaluation worker " + address + ": "
+                        + e.getMessage());
+            }
+        }
+        if(workers.isEmpty()) {
+            throw new IOException("None of the evaluation workers can be reached");
+        }
+
+        int[] created = {0};
+        threads = Executors.newFixedThreadPool(workers.size(), task -> {
+            Thread thread = new Thread(task, "remote-evaluator-" + created[0]++);
+            thread.setDaemon(true);
+            return thread;
+        });
+        nextJobID = 0;
+    }
+
+    /**
+     * Returns the number of workers that have not been lost.
+     * @return The number of workers that have not been lost.
+     */
+    public int getWorkerCount() {
+        return workers.size();
+    }
+
+    /**
+     * Plays out one generation with the supplied networks on the workers and returns the score
+     * every network achieved. Every job is a game of its own, which gives the same scores as
+     * playing all networks in one game as the agents do not affect each other.
+     * @param networks The networks to play out, one for each agent.
+     * @param width The width of the game world.
+     * @param height The height of the game world.
+     * @param timestep The time that passes in each step.
+     * @param maxTime The most game time the generation may take.
+     * @return The score each network achieved, in the order of the networks.
+     */
+    public int[] evaluate(List<? extends NetworkIF> networks, int width, int height,
+                          float timestep, float maxTime) {
+        int[] scores = new int[networks.size()];
+        Queue<Job> pending = new ConcurrentLinkedQueue<>();
+        int numJobs = Math.min(networks.size(), Math.max(1, workers.size() * JOBS_PER_WORKER));
+        for(int i = 0; i < numJobs; i++) {
+            int start = networks.size() * i / numJobs;
+            int end = networks.size() * (i + 1) / numJobs;
+            pending.add(new Job(nextJobID++, start, networks.subList(start, end)));
+        }
+
+        // A job put back by a lost worker may be left over once the others are done.
+        while(!pending.isEmpty() && !workers.isEmpty()) {
+            List<Future<?>> running = new ArrayList<>(workers.size());
+            for(Connection worker : workers) {
+                running.add(threads.submit(() -> worker.serve(pending, scores, width, height,
+                        timestep, maxTime)));
+            }
+            for(Future<?> future : running) {
+                await(future);
+            }
+            workers.removeIf(Connection::isLost);
+            if(workers.isEmpty()) {
+                System.err.println("ERROR: No evaluation workers left, playing out locally");
+            }
+        }
+
+        Job job;
+        while((job = pending.poll()) != null) {
+            try {
+                int[] jobScores = EvaluationWorker.evaluate(EvaluationWorker.read(
+                        new DataInputStream(new ByteArrayInputStream(job.networks)), job.count),
+                        width, height, timestep, maxTime);
+                System.arraycopy(jobScores, 0, scores, job.start, job.count);
+            } catch(IOException e) {
+                throw new IllegalStateException("Unable to read back job " + job.id, e);
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * Waits for a worker thread to finish.
+     * @param future The task of the worker thread.
+     */
+    private static void await(Future<?> future) {
+        try {
+            future.get();
+        } catch(ExecutionException e) {
+            throw new IllegalStateException("Evaluation failed", e.getCause());
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the workers", e);
+        }
+    }
+
+    /** Tells every worker that has not been lost that we are done and closes the connections. */
+    @Override
+    public void close() {
+        for(Connection worker : workers) {
+            worker.shutdown();
+        }
+        workers.clear();
+        threads.shutdown();
+    }
+
+    /** A part of the networks of a generation, encoded once so it can be sent again. */
+    private static final class Job {
+
+        /** The ID the worker answers with. */
+        private final int id;
+
+        /** The index of the first network of the job. */
+        private final int start;
+
+        /** The number of networks in the job. */
+        private final int count;
+
+        /** The networks of the job as written by GenomeCodec. */
+        private final byte[] networks;
+
+        /**
+         * Encodes a job.
+         * @param id The ID the worker answers with.
+         * @param start The index of the first network of the job.
+         * @param networks The networks of the job.
+         */
+        private Job(int id, int start, List<? extends NetworkIF> networks) {
+            this.id = id;
+            this.start = start;
+            this.count = networks.size();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            try {
+                for(NetworkIF network : networks) {
+                    GenomeCodec.write(network, out);
+                }
+                out.flush();
+            } catch(IOException e) {
+                throw new IllegalStateException("Unable to encode job " + id, e);
+            }
+            this.networks = bytes.toByteArray();
+        }
+    }
+
+    /** The connection to one worker. Only used by one thread at a time. */
+    private static final class Connection {
+
+        /** The address of the worker. */
+        private final InetSocketAddress address;
+
+        /** The socket connected to the worker. */
+        private final Socket socket;
+
+        /** The input from the worker. */
+        private final DataInputStream in;
+
+        /** The output to the worker. */
+        private final DataOutputStream out;
+
+        /** Whether the worker has been lost. */
+        private volatile boolean lost;
+
+        /**
+         * Connects to a worker and checks its greeting.
+         * @param address The address of the worker.
+         * @throws IOException If the worker can not be reached or is no evaluation worker.
+         */
+        private Connection(InetSocketAddress address) throws IOException {
+            this.address = address;
+            socket = new Socket();
+            try {
+                socket.connect(address, CONNECT_TIMEOUT);
+                socket.setSoTimeout(READ_TIMEOUT);
+                socket.setTcpNoDelay(true);
+                in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                Protocol.readGreeting(in);
+            } catch(IOException e) {
+                socket.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Sends jobs from the supplied queue to the worker until the queue is empty or the worker
+         * is lost, in which case the job it was playing out goes back on the queue.
+         * @param pending The jobs waiting to be played out.
+         * @param scores The scores of every network of the generation.
+         * @param width The width of the game world.
+         * @param height The height of the game world.
+         * @param timestep The time that passes in each step.
+         * @param maxTime The most game time the generation may take.
+         */
+        private void serve(Queue<Job> pending, int[] scores, int width, int height,
+                           float timestep, float maxTime) {
+            Job job;
+            while((job = pending.poll()) != null) {
+                try {
+                    out.writeByte(Protocol.EVALUATE);
+                    out.writeInt(job.id);
+                    out.writeInt(width);
+                    out.writeInt(height);
+                    out.writeFloat(timestep);
+                    out.writeFloat(maxTime);
+                    out.writeInt(job.count);
+                    out.write(job.networks);
+                    out.flush();
+
+                    if(in.readInt() != job.id || Protocol.readCount(in) != job.count) {
+                        throw new IOException("Answer does not match job " + job.id);
+                    }
+                    // Every job writes its own part of the scores.
+                    for(int i = 0; i < job.count; i++) {
+                        scores[job.start + i] = in.readInt();
+                    }
+                } catch(IOException e) {
+                    System.err.println("ERROR: Lost evaluation worker " + address + ": " + e);
+                    pending.add(job);
+                    lost = true;
+                    close();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Returns whether the worker has been lost.
+         * @return True if the worker has been lost, false otherwise.
+         */
+        private boolean isLost() {
+            return lost;
+        }
+
+        /** Tells the worker we are done and closes the connection. */
+        private void shutdown() {
+            try {
+                out.writeByte(Protocol.SHUTDOWN);
+                out.flush();
+            } catch(IOException e) {
+                // The worker is already gone, so there is no one left to tell.
+            }
+            close();
+        }
+
+        /** Closes the connection. */
+        private void close() {
+            try {
+                socket.close();
+            } catch(IOException e) {
+                System.err.println("ERROR: Unable to close the connection to " + address);
+            }
+        }
+    }
+}
@@ -1,13 +1,21 @@
 package hyperneat;
 
+import AIinterfaces.CompiledNetwork;
+import AIinterfaces.InnovationRegistry;
 import AIinterfaces.LinkIF;
 import AIinterfaces.NetworkIF.CPPNNetworkIF;
 import AIinterfaces.NetworkIF.HNNetworkIF;
 import AIinterfaces.NodeIF.HNNodeIF;
 import AIinterfaces.NodeIF.NEATNodeIF;
+import AIinterfaces.RandomSource;
 import AIinterfaces.ReusedCode;
+import AIinterfaces.Workers;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.List;
-import java.util.Map;
+import java.util.Random;
 
 /**
  * This class models a CPPN in the 4th dimension. This will set up the substrate and the CPPN network The substrate will
@@ -22,8 +30,29 @@ public class CPPN extends ReusedCode implements CPPNNetworkIF {
     /** The size of the substrate. */
     private static final int SUBSTRATE_SIZE = 11;
 
-    /** Array holding the weights between any two nodes on the substrate. */
-    private final Substrate substrate;
+    /** The number of pairs of points on the substrate, one for every link of a layer. */
+    private static final int NUM_QUERIES = (int) Math.pow(CPPN.SUBSTRATE_SIZE, 4);
+
+    /** The number of pairs of points queried together, which are all the pairs starting on one row. */
+    private static final int QUERY_CHUNK = (int) Math.pow(CPPN.SUBSTRATE_SIZE, 3);
+
+    /**
+     * The coordinates (x1, y1, x2, y2) of every pair of points on the substrate, stored as one column per coordinate
+     * in the same order as the substrate weights.
+     */
+    private static final float[][] QUERIES = CPPN.generateQueries();
+
+    /** Array holding the weights between any two nodes on the substrate. Only built once it is first run. */
+    private Substrate substrate;
+
+    /** Whether the CPPN network changed since the substrate weights were last generated. */
+    private boolean substrateDirty;
+
+    /**
+     * The seed the activation functions of the substrate nodes are picked with. Drawn when the CPPN is made, so the
+     * substrate gets the same activation functions no matter which thread first runs it.
+     */
+    private final long activationSeed;
 
     /** The input number of nodes for the substrate. */
     private final int inputSize;
@@ -40,66 +69,203 @@ public class CPPN extends ReusedCode implements CPPNNetworkIF {
     /**
      * Constructor of the CPPN. Creates the substrate and network for the CPPN to run with.
      * @param inputSize the size of the square matrix of the substrate
+     * @param innovationRegistry The registry of innovation numbers of the population
      */
-    public CPPN(int inputSize, int outputSize) {
+    public CPPN(int inputSize, int outputSize, InnovationRegistry innovationRegistry) {
         this.inputSize = inputSize;
         this.outputSize = outputSize;
-        this.substrate = new Substrate(inputSize, outputSize, CPPN.SUBSTRATE_SIZE);
         //2 pairs of input points, 1 output weight
-        this.CPPNFunction = new Network(4, 1);
-        this.generateNetwork();
+        this.CPPNFunction = new Network(4, 1, innovationRegistry);
+        this.substrateDirty = true;
+        this.activationSeed = RandomSource.current().nextLong();
         this.fitness = 0;
     }
 
+    /**
+     * Copy constructor of the CPPN. Copies the network of the other CPPN, but leaves the substrate to be built once
+     * this CPPN is first run.
+     * @param other The CPPN to copy
+     */
+    private CPPN(CPPN other) {
+        this.inputSize = other.inputSize;
+        this.outputSize = other.outputSize;
+        this.CPPNFunction = new Network(other.CPPNFunction);
+        this.substrateDirty = true;
+        this.activationSeed = RandomSource.current().nextLong();
+        this.fitness = 0;
+    }
+
+    /**
+     * Copies a CPPN into one whose network is numbered by the supplied registry, such as a CPPN that migrates to
+     * another population. The copy keeps the fitness and activation seed of the other CPPN, so it builds the same
+     * substrate.
+     * @param other The CPPN to copy
+     * @param innovationRegistry The registry of innovation numbers of the copy
+     */
+    public CPPN(CPPN other, InnovationRegistry innovationRegistry) {
+        this.inputSize = other.inputSize;
+        this.outputSize = other.outputSize;
+        this.CPPNFunction = new Network(other.CPPNFunction, innovationRegistry);
+        this.substrateDirty = true;
+        this.activationSeed = other.activationSeed;
+        this.fitness = other.fitness;
+    }
+
+    /**
+     * Reads a CPPN back from a checkpoint written by write. The substrate is left to be built once the CPPN is first
+     * run, from the same activation seed as before.
+     * @param in The input to read from
+     * @param innovationRegistry The registry of innovation numbers of the population
+     * @throws IOException If the input can not be read or does not hold a CPPN
+     */
+    public CPPN(DataInput in, InnovationRegistry innovationRegistry) throws IOException {
+        this.inputSize = ReusedCode.readSize(in);
+        this.outputSize = ReusedCode.readSize(in);
+        this.activationSeed = in.readLong();
+        this.fitness = in.readInt();
+        this.CPPNFunction = new Network(in, innovationRegistry);
+        this.substrateDirty = true;
+    }
+
+    /**
+     * Writes this CPPN to a checkpoint: the sizes and activation seed of its substrate, its fitness and its network.
+     * @param out The output to write to
+     * @throws IOException If the output can not be written to
+     */
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(this.inputSize);
+        out.writeInt(this.outputSize);
+        out.writeLong(this.activationSeed);
+        out.writeInt(this.fitness);
+        this.CPPNFunction.write(out);
+    }
+
     /**
      * Creates a  copy of this CPPN
      * @return the cloned CPPN
      */
     @Override
     public CPPN clone() {
-        CPPN clone = new CPPN(this.inputSize, this.outputSize);
-        clone.CPPNFunction = new Network(this.CPPNFunction);
-        clone.generateNetwork();
-        return clone;
+        return new CPPN(this);
     }
 
     /**
-     * Takes any two points on an array and feeds those points forward in the CPPN network to get an output
-     * @param xOne x coordinate of the first point on the substrate
-     * @param yOne y coordinate of the first point on the substrate
-     * @param xTwo x coordinate of the second point on the substrate
-     * @param yTwo y coordinate of the second point on the substrate
-     * @return the weight of the connection between these two points
+     * Lists the coordinates of every pair of points on the substrate.
+     * @return One column per coordinate holding the coordinates of every pair of points
      */
-    private double outputWeight(int xOne, int yOne, int xTwo, int yTwo) {
-        float[] inputValues = {xOne, yOne, xTwo, yTwo};
-        double[] outputArray = feedForward(CPPNFunction, inputValues);
-        return outputArray[0];
+    private static float[][] generateQueries() {
+        float[][] queries = new float[4][CPPN.NUM_QUERIES];
+        int query = 0;
+        for (int i = 0; i < CPPN.SUBSTRATE_SIZE; i++) {
+            for (int j = 0; j < CPPN.SUBSTRATE_SIZE; j++) {
+                for (int k = 0; k < CPPN.SUBSTRATE_SIZE; k++) {
+                    for (int l = 0; l < CPPN.SUBSTRATE_SIZE; l++) {
+                        queries[0][query] = i;
+                        queries[1][query] = j;
+                        queries[2][query] = k;
+                        queries[3][query] = l;
+                        query++;
+                    }
+                }
+            }
+        }//end nested loops
+        return queries;
     }
 
     /**
      * Function that will take the generated weights and create a Neural Network from them. This creates a 4 dimensional
-     * CPPN with 4 substrates
+     * CPPN with 4 substrates. The CPPN is compiled once and queried for every pair of points in chunks, which are spread
+     * over the worker threads.
      */
     private void generateNetwork() {
+        CPPN.generateWeights(new CompiledNetwork(this.CPPNFunction), this.substrate);
+    }
+
+    /**
+     * Queries the supplied compiled CPPN network for every pair of points on the substrate and sets the substrate
+     * weights to the results. The queries are made in chunks, which are spread over the worker threads.
+     * @param compiled  The compiled CPPN network
+     * @param substrate The substrate to set the weights of
+     */
+    private static void generateWeights(CompiledNetwork compiled, Substrate substrate) {
+        double[][] weights = new double[1][CPPN.NUM_QUERIES];
+
         //Create the node weights
-        for (int i = 0; i < Coefficients.SUBSTRATE_SIZE.getValue(); i++) {
-            for (int j = 0; j < Coefficients.SUBSTRATE_SIZE.getValue(); j++) {
-                for (int k = 0; k < Coefficients.SUBSTRATE_SIZE.getValue(); k++) {
-                    for (int l = 0; l < Coefficients.SUBSTRATE_SIZE.getValue(); l++) {
-                        double output = this.outputWeight(i, j, k, l);
-                        this.substrate.setLinkWeight(i, j, k, l, output);
-                    }
-                }
-            }
-        }//end nested loops
+        Workers.forEach(CPPN.NUM_QUERIES / CPPN.QUERY_CHUNK, chunk -> compiled.feedForward(CPPN.QUERIES,
+                chunk * CPPN.QUERY_CHUNK, (chunk + 1) * CPPN.QUERY_CHUNK, weights));
+        substrate.setLinkWeights(weights[0]);
+    }
+
+    /**
+     * Returns whether a substrate can have the supplied numbers of input and output nodes. The input nodes are the
+     * first nodes of the input layer, so there may be no more of them than the layer has nodes, and the output nodes
+     * are the first nodes of the last row of the output layer, so there may be no more of them than that row has.
+     * @param inputSize  The input number of nodes for the substrate
+     * @param outputSize The output number of nodes for the substrate
+     * @return True if the substrate can have that many input and output nodes, false otherwise
+     */
+    public static boolean fitsSubstrate(int inputSize, int outputSize) {
+        return inputSize >= 0 && inputSize <= CPPN.SUBSTRATE_SIZE * CPPN.SUBSTRATE_SIZE && outputSize >= 0
+                && outputSize <= CPPN.SUBSTRATE_SIZE;
+    }
+
+    /**
+     * Builds the substrate a CPPN with the supplied compiled network, sizes and activation seed would run, without the
+     * CPPN itself. Lets a process that only received the compiled network run the same substrate as the CPPN.
+     * @param compiled       The compiled CPPN network
+     * @param inputSize      The input number of nodes for the substrate
+     * @param outputSize     The output number of nodes for the substrate
+     * @param activationSeed The seed the activation functions of the substrate nodes are picked with
+     * @return The substrate with its weights generated
+     */
+    public static Substrate buildSubstrate(CompiledNetwork compiled, int inputSize, int outputSize,
+                                           long activationSeed) {
+        Substrate substrate = new Substrate(inputSize, outputSize, CPPN.SUBSTRATE_SIZE, new Random(activationSeed));
+        CPPN.generateWeights(compiled, substrate);
+        return substrate;
+    }
+
+    /**
+     * Gets the input number of nodes for the substrate
+     * @return The input number of nodes for the substrate
+     */
+    public int getInputSize() {
+        return this.inputSize;
+    }
+
+    /**
+     * Gets the output number of nodes for the substrate
+     * @return The output number of nodes for the substrate
+     */
+    public int getOutputSize() {
+        return this.outputSize;
+    }
 
+    /**
+     * Gets the seed the activation functions of the substrate nodes are picked with
+     * @return The seed the activation functions of the substrate nodes are picked with
+     */
+    public long getActivationSeed() {
+        return this.activationSeed;
     }
 
     /** Mutates the CPPN network */
     public void mutate() {
         this.CPPNFunction.mutate();
-        this.generateNetwork();
+        this.substrateDirty = true;
+    }
+
+    /** Mutates the weights of the links of the CPPN network */
+    public void mutateWeights() {
+        this.CPPNFunction.mutateWeights();
+        this.substrateDirty = true;
+    }
+
+    /** Mutates the structure of the CPPN network */
+    public void mutateStructure() {
+        this.CPPNFunction.mutateStructure();
+        this.substrateDirty = true;
     }
 
     /**
@@ -111,13 +277,34 @@ public class CPPN extends ReusedCode implements CPPNNetworkIF {
     }
 
     /**
-     * Feeds the network to get new output values
+     * Feeds the network to get new output values. Generates the substrate weights first if the CPPN network changed
+     * since they were last generated.
      * @param agentVision The array of what the agent can see
      * @return The array of the output values
      */
     @Deprecated
     public double[] runSubstrate(float[] agentVision) {
-        return this.substrate.feedForward(agentVision);
+        double[] output = new double[this.outputSize];
+        this.runSubstrate(agentVision, output);
+        return output;
+    }
+
+    /**
+     * Feeds the network to write new output values into the supplied array. Generates the substrate weights first if
+     * the CPPN network changed since they were last generated.
+     * @param agentVision The array of what the agent can see
+     * @param output      The array to write the output values to
+     */
+    public void runSubstrate(float[] agentVision, double[] output) {
+        if (this.substrate == null) {
+            this.substrate = new Substrate(this.inputSize, this.outputSize, CPPN.SUBSTRATE_SIZE,
+                    new Random(this.activationSeed));
+        }
+        if (this.substrateDirty) {
+            this.generateNetwork();
+            this.substrateDirty = false;
+        }
+        this.substrate.feedForward(agentVision, output);
     }
 
     /**
@@ -130,6 +317,19 @@ public class CPPN extends ReusedCode implements CPPNNetworkIF {
         return CPPNFunction.getLinks();
     }
 
+    /**
+     * Adds a link to the CPPN network
+     * @param innovationNumber The innovation number of the link
+     * @param input            The input node to connect from
+     * @param output           The output node to connect to
+     * @param weight           The weight that should be given to the link
+     */
+    @Override
+    public void insertLink(int innovationNumber, NEATNodeIF input, NEATNodeIF output, double weight) {
+        this.CPPNFunction.insertLink(innovationNumber, input, output, weight);
+        this.substrateDirty = true;
+    }
+
     /**
      * Gets the fitness of this CPPN
      * @return The fitness of the CPPN
@@ -155,6 +355,7 @@ public class CPPN extends ReusedCode implements CPPNNetworkIF {
     public CPPN crossover(CPPN otherParent) {
         CPPN baby = this.clone();
         crossover(otherParent.CPPNFunction, baby.CPPNFunction);
+        baby.substrateDirty = true;
         return baby;
     }
 
@@ -179,6 +380,15 @@ public class CPPN extends ReusedCode implements CPPNNetworkIF {
         return true;
     }
 
+    /**
+     * Gets the nodes of the CPPN network in order by their layers
+     * @return The CPPN network nodes in order by their layers
+     */
+    @Override
+    public List<NEATNodeIF> getNodesByLayer() {
+        return CPPNFunction.getNodesByLayer();
+    }
+
     /** CPPN has no layer to increment */
     @Deprecated
     @Override
@@ -199,13 +409,12 @@ public class CPPN extends ReusedCode implements CPPNNetworkIF {
     public void incrementNodes() {}
 
     /**
-     * There is no innovation list
-     * @return null because it doesn't exist
+     * Gets the innovation registry of the CPPN network
+     * @return the registry of innovation numbers of the population
      */
-    @Deprecated
     @Override
-    public Map<Integer, String> getInnovationList() {
-        return null;
+    public InnovationRegistry getInnovationRegistry() {
+        return CPPNFunction.getInnovationRegistry();
     }
 
     /**
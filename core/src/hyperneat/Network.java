@@ -1,11 +1,16 @@
 package hyperneat;
 
+import AIinterfaces.InnovationRegistry;
 import AIinterfaces.LinkIF;
 import AIinterfaces.NetworkIF.HNNetworkIF;
 import AIinterfaces.NodeIF.HNNodeIF;
 import AIinterfaces.NodeIF.NEATNodeIF;
+import AIinterfaces.RandomSource;
 import AIinterfaces.ReusedCode;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -18,10 +23,10 @@ import java.util.*;
  */
 public class Network extends ReusedCode implements HNNetworkIF {
     /**
-     * A static mapping of innovation numbers. These help in identifying similar links across multiple networks during
-     * crossover.
+     * The registry of innovation numbers shared by every network of the same population. These help in identifying
+     * similar links across multiple networks during crossover.
      */
-    private static final Map<Integer, String> innovationList = new HashMap<>();
+    private final InnovationRegistry innovationRegistry;
 
     /** A list of all links in this network. */
     private final List<LinkIF> links;
@@ -38,6 +43,15 @@ public class Network extends ReusedCode implements HNNetworkIF {
     /** A single bias node which should be connected to all non-input nodes. Helps with outputs. */
     private final HNNodeIF biasNode;
 
+    /**
+     * Every node in this network indexed by its ID plus one, so the bias node is first. IDs that are not used by any
+     * node are left empty.
+     */
+    private final List<HNNodeIF> nodesById;
+
+    /** Every node in this network in order by their layers. Kept up to date as nodes are added. */
+    private final List<NEATNodeIF> nodesByLayer;
+
     /** Counter to keep track of the number of nodes there are in our network. */
     private int numNodes;
 
@@ -54,8 +68,10 @@ public class Network extends ReusedCode implements HNNetworkIF {
      * Our network constructor. Builds an initial fully connected network of input and output nodes.
      * @param inputNum  The number of input nodes to have.
      * @param outputNum The number of output nodes to have.
+     * @param innovationRegistry The registry of innovation numbers of the population.
      */
-    public Network(int inputNum, int outputNum) {
+    public Network(int inputNum, int outputNum, InnovationRegistry innovationRegistry) {
+        this.innovationRegistry = innovationRegistry;
         numNodes = 0;
         numLayers = 0;
         fitness = 0;
@@ -63,6 +79,7 @@ public class Network extends ReusedCode implements HNNetworkIF {
         inputNodes = new HNNodeIF[inputNum];
         outputNodes = new HNNodeIF[outputNum];
         hiddenNodes = new ArrayList<>();
+        nodesById = new ArrayList<>();
         biasNode = new Node(-1, numLayers);
         biasNode.setOutputValue(1);
         numNodes++;
@@ -83,6 +100,16 @@ public class Network extends ReusedCode implements HNNetworkIF {
             numNodes++;
         }
 
+        indexNode(biasNode);
+        for (HNNodeIF node : inputNodes) {
+            indexNode(node);
+        }
+        for (HNNodeIF node : outputNodes) {
+            indexNode(node);
+        }
+
+        nodesByLayer = orderNodesByLayer(this);
+
         // Links our input nodes to output nodes and attaches the bias node to each output node.
         generateNetwork(this, inputNodes, outputNodes, biasNode);
     }
@@ -92,6 +119,18 @@ public class Network extends ReusedCode implements HNNetworkIF {
      * @param network The network to copy.
      */
     public Network(HNNetworkIF network) {
+        this(network, network.getInnovationRegistry());
+    }
+
+    /**
+     * Copies a network into one whose links are numbered by the supplied registry, such as the network of a CPPN that
+     * migrates to another population. Links new to the registry are given their numbers in the order the network has
+     * them.
+     * @param network The network to copy.
+     * @param innovationRegistry The registry of innovation numbers of the copy.
+     */
+    public Network(HNNetworkIF network, InnovationRegistry innovationRegistry) {
+        this.innovationRegistry = innovationRegistry;
         this.numNodes = network.getNumNodes();
         this.numLayers = network.getNumLayers();
         this.fitness = network.getFitness();
@@ -99,6 +138,7 @@ public class Network extends ReusedCode implements HNNetworkIF {
         this.inputNodes = new HNNodeIF[network.getInputNodes().length];
         this.outputNodes = new HNNodeIF[network.getOutputNodes().length];
         this.hiddenNodes = new ArrayList<>();
+        this.nodesById = new ArrayList<>();
         this.biasNode = new Node((HNNodeIF) network.getBiasNode());
 
         //Copy the input layer into the new input layer
@@ -116,9 +156,207 @@ public class Network extends ReusedCode implements HNNetworkIF {
             this.outputNodes[i] = new Node((HNNodeIF) network.getOutputNodes()[i]);
         }
 
+        indexNode(this.biasNode);
+        for (HNNodeIF node : this.inputNodes) {
+            indexNode(node);
+        }
+        for (HNNodeIF node : this.hiddenNodes) {
+            indexNode(node);
+        }
+        for (HNNodeIF node : this.outputNodes) {
+            indexNode(node);
+        }
+        this.nodesByLayer = orderNodesByLayer(this);
         copyLinks(network, this);
     }
 
+    /**
+     * Reads a network back from a checkpoint written by write. Each node draws an activation function from the
+     * current random source before it is replaced by the one read, so the caller should have a source in use that
+     * nothing else depends on.
+     * @param in The input to read from.
+     * @param innovationRegistry The registry of innovation numbers of the population.
+     * @throws IOException If the input can not be read or does not hold a network.
+     */
+    public Network(DataInput in, InnovationRegistry innovationRegistry) throws IOException {
+        this.innovationRegistry = innovationRegistry;
+        this.numNodes = readSize(in);
+        this.numLayers = readSize(in);
+        this.fitness = in.readInt();
+        this.links = new ArrayList<>();
+        this.inputNodes = new HNNodeIF[readSize(in)];
+        int numHidden = readSize(in);
+        this.outputNodes = new HNNodeIF[readSize(in)];
+        this.hiddenNodes = new ArrayList<>(numHidden);
+        this.nodesById = new ArrayList<>();
+        this.biasNode = readNode(in, numNodes);
+        for (int i = 0; i < inputNodes.length; i++) {
+            this.inputNodes[i] = readNode(in, numNodes);
+        }
+        for (int i = 0; i < numHidden; i++) {
+            this.hiddenNodes.add(readNode(in, numNodes));
+        }
+        for (int i = 0; i < outputNodes.length; i++) {
+            this.outputNodes[i] = readNode(in, numNodes);
+        }
+        indexNode(this.biasNode);
+        for (HNNodeIF node : this.inputNodes) {
+            indexNode(node);
+        }
+        for (HNNodeIF node : this.hiddenNodes) {
+            indexNode(node);
+        }
+        for (HNNodeIF node : this.outputNodes) {
+            indexNode(node);
+        }
+        this.nodesByLayer = orderNodesByLayer(this);
+        readLinks(in);
+    }
+
+    /**
+     * Reads a single node of a network from a checkpoint.
+     * @param in The input to read from.
+     * @param numNodes The number of nodes the network has, which no ID may be above.
+     * @return The node.
+     * @throws IOException If the input can not be read or the node has an impossible ID.
+     */
+    private static HNNodeIF readNode(DataInput in, int numNodes) throws IOException {
+        HNNodeIF node = new Node(in);
+        if (node.getId() < -1 || node.getId() > numNodes) {
+            throw new IOException("Checkpoint holds a node with ID " + node.getId());
+        }
+        return node;
+    }
+
+    /**
+     * Writes this network to a checkpoint: its counters and fitness, then its nodes from the bias node through to the
+     * output nodes, then its links.
+     * @param out The output to write to.
+     * @throws IOException If the output can not be written to.
+     */
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(numNodes);
+        out.writeInt(numLayers);
+        out.writeInt(fitness);
+        out.writeInt(inputNodes.length);
+        out.writeInt(hiddenNodes.size());
+        out.writeInt(outputNodes.length);
+        writeNode(biasNode, out);
+        for (HNNodeIF node : inputNodes) {
+            writeNode(node, out);
+        }
+        for (HNNodeIF node : hiddenNodes) {
+            writeNode(node, out);
+        }
+        for (HNNodeIF node : outputNodes) {
+            writeNode(node, out);
+        }
+        writeLinks(out);
+    }
+
+    /**
+     * Writes the values of a node to a checkpoint, along with its activation function and slope. Its links are written
+     * by writeLinks.
+     * @param node The node to write.
+     * @param out  The output to write to.
+     * @throws IOException If the output can not be written to.
+     */
+    private static void writeNode(HNNodeIF node, DataOutput out) throws IOException {
+        out.writeInt(node.getId());
+        out.writeInt(node.getLayer());
+        out.writeDouble(node.getInputValue());
+        out.writeDouble(node.getOutputValue());
+        out.writeByte(node.getRandomActive());
+        out.writeDouble(node.getSlope());
+    }
+
+    /**
+     * Writes the links of this network to a checkpoint: first the list of links of this network and then the outgoing
+     * links of each of its nodes. Both are written as they are, as this network keeps its own copy of each link apart
+     * from the copy its input node has.
+     * @param out The output to write to.
+     * @throws IOException If the output can not be written to.
+     */
+    private void writeLinks(DataOutput out) throws IOException {
+        out.writeInt(links.size());
+        for (LinkIF link : links) {
+            writeLink(link, out);
+        }
+        List<NEATNodeIF> nodes = listNodesByLayer(this);
+        out.writeInt(nodes.size());
+        for (NEATNodeIF node : nodes) {
+            out.writeInt(node.getId());
+            out.writeInt(node.getOutgoingLinks().size());
+            for (LinkIF link : node.getOutgoingLinks()) {
+                writeLink(link, out);
+            }
+        }
+    }
+
+    /**
+     * Reads the links written by writeLinks back into this network, whose nodes are already read.
+     * @param in The input to read from.
+     * @throws IOException If the input can not be read or does not fit the nodes of this network.
+     */
+    private void readLinks(DataInput in) throws IOException {
+        int numLinks = readSize(in);
+        for (int i = 0; i < numLinks; i++) {
+            links.add(readLink(in));
+        }
+        int numNodes = readSize(in);
+        for (int i = 0; i < numNodes; i++) {
+            NEATNodeIF node = findNode(in.readInt());
+            int numOutgoing = readSize(in);
+            for (int j = 0; j < numOutgoing; j++) {
+                node.getOutgoingLinks().add(readLink(in));
+            }
+        }
+    }
+
+    /**
+     * Writes a single link to a checkpoint.
+     * @param link The link to write.
+     * @param out  The output to write to.
+     * @throws IOException If the output can not be written to.
+     */
+    private static void writeLink(LinkIF link, DataOutput out) throws IOException {
+        out.writeInt(link.getInnovationNum());
+        out.writeInt(link.getInputNodeID());
+        out.writeInt(link.getOutputNode().getId());
+        out.writeDouble(link.getWeight());
+        out.writeBoolean(link.isEnabled());
+    }
+
+    /**
+     * Reads a single link written by writeLink, connected to the nodes of this network.
+     * @param in The input to read from.
+     * @return The link.
+     * @throws IOException If the input can not be read or the link connects unknown nodes.
+     */
+    private LinkIF readLink(DataInput in) throws IOException {
+        int innovationNumber = in.readInt();
+        int inputID = findNode(in.readInt()).getId();
+        NEATNodeIF output = findNode(in.readInt());
+        LinkIF link = new Link(innovationNumber, inputID, output, in.readDouble());
+        link.setEnabled(in.readBoolean());
+        return link;
+    }
+
+    /**
+     * Returns the node of this network with an ID read from a checkpoint.
+     * @param id The ID of the node.
+     * @return The node with the supplied ID.
+     * @throws IOException If this network has no node with the supplied ID.
+     */
+    private NEATNodeIF findNode(int id) throws IOException {
+        NEATNodeIF node = getNode(id);
+        if (node == null) {
+            throw new IOException("Checkpoint links to unknown node " + id);
+        }
+        return node;
+    }
+
     /**
      * Returns this network's fitness.
      * @return This network's fitness.
@@ -143,12 +381,27 @@ public class Network extends ReusedCode implements HNNetworkIF {
         return links;
     }
 
+    /**
+     * Adds a link with the supplied innovation number between two nodes of this network that are not connected yet.
+     * The network keeps its own copy of the link, in order by innovation number, apart from the copy the input node
+     * keeps in its outgoing links.
+     * @param innovationNumber The innovation number of the link.
+     * @param input            The input node to connect from.
+     * @param output           The output node to connect to.
+     * @param weight           The weight that should be given to the link.
+     */
+    @Override
+    public void insertLink(int innovationNumber, NEATNodeIF input, NEATNodeIF output, double weight) {
+        links.add(findLink(links, innovationNumber), new Link(innovationNumber, input.getId(), output, weight));
+        input.getOutgoingLinks().add(new Link(innovationNumber, input.getId(), output, weight));
+    }
+
     /**
      * Mutate a node in the hidden node list. The node will have a mutated parameterized slope if that activation
      * function is in this nodes phenotype. Otherwise the node will not express the mutation.
      */
     public void mutatePR() {
-        int random = new Random().nextInt(hiddenNodes.size());
+        int random = RandomSource.current().nextInt(hiddenNodes.size());
         hiddenNodes.get(random).slopeCalc();
     }
 
@@ -158,14 +411,27 @@ public class Network extends ReusedCode implements HNNetworkIF {
      * new links or new nodes.
      */
     public void mutate() {
-        Random random = new Random();
+        mutateWeights();
+        mutateStructure();
+    }
+
+    /** Possibly mutates the weight of each link. Each link is either mutated or not. */
+    public void mutateWeights() {
+        Random random = RandomSource.current();
         // Mutation for link weight. Each link is either mutated or not each generation.
         for (LinkIF link : links) {
             if (random.nextDouble() < Coefficients.LINK_WEIGHT_MUT.getValue()) {
-                mutateWeight(link.getWeight());
+                link.setWeight(mutateWeight(link.getWeight()));
             }
         }
+    }
 
+    /**
+     * Possibly adds a new link between two unlinked nodes and a new node where a link used to be, which both hand out
+     * innovation numbers, then possibly mutates the slope of a hidden node.
+     */
+    public void mutateStructure() {
+        Random random = RandomSource.current();
         // Mutation for adding a link between two random, unlinked nodes.
         if (random.nextDouble() < Coefficients.ADD_LINK_MUT.getValue()) {
             addLinkMutation(this);
@@ -208,7 +474,7 @@ public class Network extends ReusedCode implements HNNetworkIF {
      * bypass our hidden node, therefore reducing its ability to change the network's output).
      */
     private void addNodeMutation() {
-        Random random = new Random();
+        Random random = RandomSource.current();
         LinkIF link;
         do {
             link = links.get(random.nextInt(links.size()));
@@ -223,17 +489,28 @@ public class Network extends ReusedCode implements HNNetworkIF {
      * @return The node that corresponds to the ID number or null.
      */
     public HNNodeIF getNode(int id) {
-        for (NEATNodeIF node : listNodesByLayer(this)) {
-            if (node.getId() == id) {
-                return (HNNodeIF) node;
-            }
+        int index = id + 1;
+        if (index < 0 || index >= nodesById.size()) {
+            return null;
         }
-        return null;
+        return nodesById.get(index);
     }
 
-    /** Get the innovation list */
-    public Map<Integer, String> getInnovationList() {
-        return innovationList;
+    /**
+     * Adds a node to the table of nodes by ID, growing the table if needed.
+     * @param node The node to add.
+     */
+    private void indexNode(HNNodeIF node) {
+        int index = node.getId() + 1;
+        while (nodesById.size() <= index) {
+            nodesById.add(null);
+        }
+        nodesById.set(index, node);
+    }
+
+    /** Get the innovation registry */
+    public InnovationRegistry getInnovationRegistry() {
+        return innovationRegistry;
     }
 
     /**
@@ -260,6 +537,14 @@ public class Network extends ReusedCode implements HNNetworkIF {
         return outputNodes;
     }
 
+    /**
+     * Returns every node in order by their layers, from input -> bias -> hidden -> output.
+     * @return The list of nodes in order by their layers.
+     */
+    public List<NEATNodeIF> getNodesByLayer() {
+        return Collections.unmodifiableList(nodesByLayer);
+    }
+
     /** Increment the number of layers */
     public void incrementLayer() {
         numLayers++;
@@ -305,6 +590,8 @@ public class Network extends ReusedCode implements HNNetworkIF {
         HNNodeIF toAdd = new hyperneat.Node(getNumNodes(), layer);
         toAdd.activate();
         getHiddenNodes().add(toAdd);
+        indexNode(toAdd);
+        insertNodeByLayer(nodesByLayer, toAdd);
 
         // Now add links to either side of the new node. The link going from the old input to the
         // new node gets a weight of 1 while the link going from the new node to the old output
@@ -322,7 +609,7 @@ public class Network extends ReusedCode implements HNNetworkIF {
      */
     @Override
     public Network clone() {
-        Network clone = new Network(this.getInputNodes().length, this.getOutputNodes().length);
+        Network clone = new Network(this.getInputNodes().length, this.getOutputNodes().length, innovationRegistry);
         generateNetwork(clone, clone.getInputNodes(), getOutputNodes(), clone.getBiasNode());
         return clone;
     }
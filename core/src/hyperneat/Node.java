@@ -3,10 +3,12 @@ package hyperneat;
 import AIinterfaces.LinkIF;
 import AIinterfaces.NodeIF.HNNodeIF;
 import AIinterfaces.NodeIF.NEATNodeIF;
+import AIinterfaces.RandomSource;
 
+import java.io.DataInput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 
 /**
  * The node class contains all data needed by nodes to connect networks.
@@ -35,7 +37,7 @@ public class Node implements HNNodeIF {
     private int layer;
 
     /** The random activation function. */
-    private int randomActive = new Random().nextInt(4);
+    private int randomActive = RandomSource.current().nextInt(4);
 
     /** The slope for the activation function. */
     private double slope = 4.0;
@@ -54,6 +56,21 @@ public class Node implements HNNodeIF {
         this.layer = layer;
     }
 
+    /**
+     * Reads a node back from a checkpoint written by Network.writeNode, without its links.
+     * @param in The input to read from.
+     * @throws IOException If the input can not be read.
+     */
+    public Node(DataInput in) throws IOException {
+        this.id = in.readInt();
+        this.layer = in.readInt();
+        this.inputValue = in.readDouble();
+        this.outputValue = in.readDouble();
+        this.outgoingLinks = new ArrayList<>();
+        this.randomActive = in.readByte();
+        this.slope = in.readDouble();
+    }
+
     /**
      * Copy constructor for a node
      * @param node The node to copt into a new node
@@ -1,16 +1,26 @@
 package hyperneat;
 
+import AIinterfaces.CompatibilityCache;
+import AIinterfaces.InnovationRegistry;
+import AIinterfaces.MetricsSink;
 import AIinterfaces.NetworkIF.CPPNNetworkIF;
 import AIinterfaces.NetworkIF.HNNetworkIF;
 import AIinterfaces.NetworkIF.NetworkIF;
+import AIinterfaces.OrganismTable;
 import AIinterfaces.PopulationIF.HNPopulationIF;
-import AIinterfaces.PopulationIF.PopulationIF;
+import AIinterfaces.PopulationIF.NetworkPopulationIF;
+import AIinterfaces.RandomSource;
 import AIinterfaces.ReusedCode;
+import AIinterfaces.Speciation;
 import AIinterfaces.SpeciesIF.HNSpeciesIF;
+import AIinterfaces.SpeciesMembers;
+import AIinterfaces.Workers;
+import com.badlogic.gdx.graphics.Color;
 import com.mygdx.kittener.game.Agent;
 import com.mygdx.kittener.game.MainGame;
 
-import java.io.FileWriter;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.util.*;
 
@@ -21,13 +31,13 @@ import java.util.*;
  * @author Brooke Kiser and Tyler McVeigh
  * @version 22nd November, 2020
  */
-public class Population extends ReusedCode implements HNPopulationIF, PopulationIF {
+public class Population extends ReusedCode implements HNPopulationIF, NetworkPopulationIF {
 
     /** List of every species in the game. */
     private final List<HNSpeciesIF> species;
 
-    /** Mapping of each game agent to their network. */
-    private final Map<Integer, CPPNNetworkIF> organisms;
+    /** The network of each game agent, at the agent's ID number. */
+    private final OrganismTable<CPPNNetworkIF> organisms;
 
     /** Keeps track of the generation of organisms we're at. */
     private int generation;
@@ -35,6 +45,27 @@ public class Population extends ReusedCode implements HNPopulationIF, Population
     /** Identification number of the best agent. */
     private int bestAgentID;
 
+    /** The species each organism was found to be compatible with since the species last changed. */
+    private final CompatibilityCache compatibilityCache;
+
+    /** The random numbers this population is made and evolved with. */
+    private final Random random;
+
+    /**
+     * The innovation numbers handed out to the links of the networks of this population. Every population numbers its
+     * own links, so populations evolving side by side do not change each other's numbers.
+     */
+    private final InnovationRegistry innovationRegistry;
+
+    /** Works out the species of every organism. */
+    private final Speciation<CPPNNetworkIF> speciation;
+
+    /** The colors used by our species. */
+    private final List<Color> takenColors;
+
+    /** The log the statistics of every generation are written to, or null. */
+    private MetricsSink stats;
+
     /** The type of AI */
     private final boolean type = false;
 
@@ -45,15 +76,110 @@ public class Population extends ReusedCode implements HNPopulationIF, Population
      * @param output The number of outputs we're expecting.
      */
     public Population(List<Agent> agents, int input, int output) {
+        this(agents, input, output, new Random().nextLong());
+    }
+
+    /**
+     * Constructors our population. Maps every agent to a newly formed network. Two populations made from the same seed
+     * make and evolve the same networks.
+     * @param agents The list of agents to connect via mapping.
+     * @param input  The number of inputs we're expecting.
+     * @param output The number of outputs we're expecting.
+     * @param seed   The seed of the random numbers to make and evolve the networks with.
+     */
+    public Population(List<Agent> agents, int input, int output, long seed) {
         generation = 0;
         species = new ArrayList<>();
-        organisms = new HashMap<>();
+        organisms = new OrganismTable<>(agents.size());
         bestAgentID = 0;
+        compatibilityCache = new CompatibilityCache(agents.size());
+        random = new Random(seed);
+        innovationRegistry = new InnovationRegistry();
+        speciation = new Speciation<>(CPPNNetworkIF::getCPPNetwork);
+        takenColors = new ArrayList<>();
+        stats = MainGame.STATS;
+
+        Random previous = RandomSource.use(random);
+        try {
+            //Place each agent and corresponding CPPN in the organisms
+            for (Agent agent : agents) {
+                organisms.set(agent.getId(), new CPPN(input, output, innovationRegistry));
+            }
+        } finally {
+            RandomSource.use(previous);
+        }
+    }
+
+    /**
+     * Reads a population back from a checkpoint written by writeCheckpoint. The population goes on evolving exactly as
+     * the population that was written would have.
+     * @param agents The list of agents to connect via mapping.
+     * @param in     The input to read from.
+     * @throws IOException If the input can not be read or does not hold a population for the supplied agents.
+     */
+    public Population(List<Agent> agents, DataInput in) throws IOException {
+        generation = in.readInt();
+        bestAgentID = in.readInt();
+        random = RandomSource.read(in);
+        innovationRegistry = new InnovationRegistry();
+        species = new ArrayList<>();
+        organisms = new OrganismTable<>(agents.size());
+        compatibilityCache = new CompatibilityCache(agents.size());
+        speciation = new Speciation<>(CPPNNetworkIF::getCPPNetwork);
+        takenColors = new ArrayList<>();
+        stats = MainGame.STATS;
+
+        int numTaken = readSize(in);
+        for (int i = 0; i < numTaken; i++) {
+            takenColors.add(readColor(in));
+        }
+        int numOrganisms = readSize(in);
+        if (numOrganisms != agents.size() || numOrganisms == 0) {
+            throw new IOException("Checkpoint holds " + numOrganisms + " organisms for " + agents.size() + " agents");
+        }
+
+        // Every node draws an activation function as it is made, before the one read replaces it, so the networks are
+        // read with numbers of their own to leave the numbers of the population as they were written.
+        Random previous = RandomSource.use(new Random());
+        try {
+            for (int id = 0; id < numOrganisms; id++) {
+                organisms.set(id, new CPPN(in, innovationRegistry));
+            }
+            int numSpecies = readSize(in);
+            for (int i = 0; i < numSpecies; i++) {
+                species.add(new Species(in, innovationRegistry));
+            }
+        } finally {
+            RandomSource.use(previous);
+        }
+        innovationRegistry.read(in);
+
+        previous = RandomSource.use(random);
+        try {
+            cacheCompatibility();
+        } finally {
+            RandomSource.use(previous);
+        }
+    }
 
-        //Place each agent and corresponding CPPN in the organisms
-        for (Agent agent : agents) {
-            organisms.put(agent.getId(), new CPPN(input, output));
+    @Override
+    public void writeCheckpoint(DataOutput out) throws IOException {
+        out.writeInt(generation);
+        out.writeInt(bestAgentID);
+        RandomSource.write(random, out);
+        out.writeInt(takenColors.size());
+        for (Color color : takenColors) {
+            writeColor(color, out);
         }
+        out.writeInt(organisms.size());
+        for (int id = 0; id < organisms.size(); id++) {
+            organisms.get(id).write(out);
+        }
+        out.writeInt(species.size());
+        for (HNSpeciesIF s : species) {
+            s.write(out);
+        }
+        innovationRegistry.write(out);
     }
 
     /**
@@ -79,6 +205,21 @@ public class Population extends ReusedCode implements HNPopulationIF, Population
         return organisms.get(id).runSubstrate(agentVision);
     }
 
+    /**
+     * Writes the network output given the supplied agent ID number and it's vision into the supplied array.
+     * @param id          The agent ID number to search for in our mapping.
+     * @param agentVision The array of what the agent can see
+     * @param output      The array to write the network output to.
+     */
+    public void getNetworkOutput(int id, float[] agentVision, double[] output) {
+        organisms.get(id).runSubstrate(agentVision, output);
+    }
+
+    @Override
+    public NetworkIF getNetwork(int id) {
+        return organisms.get(id);
+    }
+
     /**
      * Passes along the score of an agent to its network so that the species class can have access to its score.
      * @param id      The identification number of the agent to be used as a key to grab the network.
@@ -94,28 +235,29 @@ public class Population extends ReusedCode implements HNPopulationIF, Population
      * @param agent The agent to modify the color of.
      */
     public void assignColor(Agent agent) {
+        CPPNNetworkIF agentNetwork = organisms.get(agent.getId());
+        if (agentNetwork == null) {
+            return;
+        }
 
-        for (HNSpeciesIF s : species) {
-            if (organisms.get(agent.getId()) == null) {
-                break;
-            }
-
-            if (isCompatibleTo(s.getCompatibilityNetwork(), organisms.get(agent.getId()).getCPPNetwork())) {
-                agent.setColor(s.getColor());
-                break;
-            }
+        int speciesIndex = compatibilityCache.get(agent.getId(), agentNetwork);
+        if (speciesIndex == CompatibilityCache.UNKNOWN) {
+            speciesIndex = findSpecies(agentNetwork, 0, species.size());
+        }
+        if (speciesIndex != CompatibilityCache.NONE) {
+            agent.setColor(species.get(speciesIndex).getColor());
         }
     }
 
     /** Sets the best agent of this generation. */
     private void setBestAgentID() {
-        System.err.println();
+        bestAgentID = 0;
         int bestFitness = organisms.get(0).getFitness();
-        for (Map.Entry<Integer, CPPNNetworkIF> organism : organisms.entrySet()) {
+        for (int id = 0; id < organisms.size(); id++) {
             //System.err.println("Best fitness: " + bestFitness + " : " + bestAgentID);
-            if (organism.getValue().getFitness() > bestFitness) {
-                bestFitness = organism.getValue().getFitness();
-                bestAgentID = organism.getKey();
+            if (organisms.get(id).getFitness() > bestFitness) {
+                bestFitness = organisms.get(id).getFitness();
+                bestAgentID = id;
             }
         }
     }
@@ -125,6 +267,19 @@ public class Population extends ReusedCode implements HNPopulationIF, Population
      * down so that we only get the high-performing ones, and reproduces.
      */
     public void naturalSelection() {
+        Random previous = RandomSource.use(random);
+        try {
+            selectAndReproduce();
+        } finally {
+            RandomSource.use(previous);
+        }
+    }
+
+    /**
+     * Performs natural selection, drawing from the current stream of the calling thread, which naturalSelection points
+     * at the stream of this population.
+     */
+    private void selectAndReproduce() {
         // Set up for producing babies.
         speciate();
         setBestAgentID();
@@ -134,41 +289,111 @@ public class Population extends ReusedCode implements HNPopulationIF, Population
 
         double avgSum = getAvgFitnessSum();
         List<NetworkIF> babies = new ArrayList<>();
+        List<HNSpeciesIF> parents = new ArrayList<>();
         for (HNSpeciesIF s : species) {
 
             // Directly clone the best network of the species.
             //System.err.println("pop ~ Natural Selection: " + s.getBestOrgID() + " : " + bestAgentID);
-            CPPNNetworkIF babyS = s.getOrganisms().get(s.getBestOrgID());
+            SpeciesMembers<CPPNNetworkIF> members = s.getOrganisms();
+            int bestIndex = members.indexOf(s.getBestOrgID());
+            CPPNNetworkIF babyS = bestIndex == -1 ? null : members.get(bestIndex);
             CPPNNetworkIF babyO = organisms.get(bestAgentID);
             if (babyS != null && babyO != null) {
                 babies.add(babyS);
+                parents.add(null);
                 babies.add(babyO);
+                parents.add(null);
             }
 
-            // Find the correct number of babies and reproduce them.
+            // Find the correct number of babies and save a place for each of them.
             int numBabies = (int) Math.floor((s.getAverageFitness() / avgSum) * organisms.size()) - 1;
 
             for (int i = 0; i < numBabies; i++) {
-                CPPNNetworkIF baby = s.reproduce();
-                if (baby != null) {
-                    babies.add(baby);
-                }
+                babies.add(null);
+                parents.add(s);
             }
         }
 
         // If we don't have enough babies, produce them from random species.
         while (babies.size() < organisms.size()) {
-            Random r = new Random();
-            HNSpeciesIF s = species.get(r.nextInt(species.size()));
-            babies.add(s.reproduce());
+            babies.add(null);
+            parents.add(species.get(random.nextInt(species.size())));
+        }
+
+        // Breed every baby that gets an agent in parallel. The parents are only read while their babies are made, so
+        // each baby just has to be written to its own place. New structure hands out innovation numbers, so it is added
+        // afterwards one baby at a time in order of agent, each baby still drawing from its own stream, to keep the
+        // numbers the same however many threads there are.
+        int[] places = placesOfBabies(parents);
+        Random[] streams = Workers.fork(places.length);
+        Workers.forEach(streams, i -> babies.set(places[i], parents.get(places[i]).breed()));
+        Workers.forEachInOrder(streams, i -> babies.get(places[i]).mutateStructure());
+
+        // Set up our agent's with their new networks. The networks of agents are evaluated in
+        // parallel, so every agent gets its own copy of a baby that was carried over more than once.
+        Set<NetworkIF> assigned = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int id = 0; id < organisms.size(); id++) {
+            CPPNNetworkIF baby = (CPPNNetworkIF) babies.get(id);
+            if (!assigned.add(baby)) {
+                baby = baby.clone();
+            }
+            organisms.set(id, baby);
+        }
+
+        // Pick the networks the next generation will be tested against now, so the species of every new organism can
+        // be worked out once for both its color and the next speciation.
+        for (HNSpeciesIF s : species) {
+            s.setCompatibilityNetwork();
+        }
+        cacheCompatibility();
+    }
+
+    /**
+     * Returns the places in the list of babies that still have to be reproduced by a species and will be given to an
+     * agent.
+     * @param parents The species that reproduces each baby, or null for a carried over network.
+     * @return The places of the babies to reproduce.
+     */
+    private int[] placesOfBabies(List<HNSpeciesIF> parents) {
+        int count = Math.min(parents.size(), organisms.size());
+        int[] places = new int[count];
+        int numPlaces = 0;
+        for (int i = 0; i < count; i++) {
+            if (parents.get(i) != null) {
+                places[numPlaces++] = i;
+            }
+        }
+        return Arrays.copyOf(places, numPlaces);
+    }
+
+    /**
+     * Finds the first compatible species for every organism and stores it in the compatibility cache. The organisms are
+     * compared in parallel.
+     */
+    private void cacheCompatibility() {
+        compatibilityCache.clear();
+        int[] speciesIndices = new int[organisms.size()];
+        Arrays.fill(speciesIndices, CompatibilityCache.UNKNOWN);
+        speciation.matchRepresentatives(organisms, compatibilityNetworks(), speciesIndices);
+        for (int id = 0; id < organisms.size(); id++) {
+            compatibilityCache.put(id, organisms.get(id), speciesIndices[id]);
         }
+    }
 
-        // Set up our agent's with their new networks.
-        int i = 0;
-        for (Map.Entry<Integer, CPPNNetworkIF> organism : organisms.entrySet()) {
-            organism.setValue((CPPNNetworkIF) babies.get(i));
-            i++;
+    /**
+     * Returns the index of the first species in a range of our species list that the supplied CPPN is compatible with.
+     * @param network The CPPN to find a species for.
+     * @param from    The index of the first species to check.
+     * @param to      The index after the last species to check.
+     * @return The index of the first compatible species, or CompatibilityCache.NONE if there is none.
+     */
+    private int findSpecies(CPPNNetworkIF network, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (isCompatibleTo(network.getCPPNetwork(), species.get(i).getCompatibilityNetwork())) {
+                return i;
+            }
         }
+        return CompatibilityCache.NONE;
     }
 
     /** Writes statistics to a csv file. The statistic will include the generation, average fitness, and max fitness. */
@@ -178,7 +403,10 @@ public class Population extends ReusedCode implements HNPopulationIF, Population
         String colorsUsed = "";
         //Adds all the CPPNs for a species to organisms
         for (HNSpeciesIF s : species) {
-            organisms.addAll(s.getOrganisms().values());
+            SpeciesMembers<CPPNNetworkIF> members = s.getOrganisms();
+            for (int i = 0; i < members.size(); i++) {
+                organisms.add(members.get(i));
+            }
             colorsUsed += s.getColor() + " : ";
         }
 
@@ -199,44 +427,53 @@ public class Population extends ReusedCode implements HNPopulationIF, Population
         average = average / organisms.size();
 
         //Write to the log file
-        try {
-            FileWriter statWriter = new FileWriter(MainGame.STAT_LOG, true);
-            statWriter.write("\n" + generation + "," + average + "," + max + "," + colorsUsed);
-            statWriter.close();
-        } catch (IOException e) {
-            System.err.println("ERROR: Unable to track statistics for generation " + generation);
+        if (stats != null) {
+            stats.write("\n" + generation + "," + average + "," + max + "," + colorsUsed);
         }
 
     }
 
+    /**
+     * Returns the compatibility networks of our species, in order.
+     * @return The compatibility networks of our species.
+     */
+    private List<HNNetworkIF> compatibilityNetworks() {
+        List<HNNetworkIF> networks = new ArrayList<>(species.size());
+        for (HNSpeciesIF s : species) {
+            networks.add(s.getCompatibilityNetwork());
+        }
+        return networks;
+    }
+
     /** Separates this populations list of organisms into separate species. */
     private void speciate() {
-        // First, set up each existing species compatibility network and clear it of all
-        // organisms from the last generation.
+        // First, clear each existing species of all organisms from the last generation. Their compatibility networks
+        // were already set up at the end of the last natural selection.
         for (HNSpeciesIF s : species) {
-            s.setCompatibilityNetwork();
             s.getOrganisms().clear();
             s.setAverageFitness();
         }
 
-        // For each organism in the population, see if it is compatible with any existing species.
-        for (Map.Entry<Integer, CPPNNetworkIF> organism : organisms.entrySet()) {
-            int agentID = organism.getKey();
-            CPPNNetworkIF agentNetwork = organism.getValue();
-            boolean speciesFound = false;
-            for (int i = 0; !speciesFound && i < species.size(); i++) {
-                HNSpeciesIF s = species.get(i);
-                if (isCompatibleTo(agentNetwork.getCPPNetwork(), s.getCompatibilityNetwork())) {
-                    s.addOrganism(agentID, agentNetwork);
-                    speciesFound = true;
-                }
-            }
-
-            // If it is not compatible, create a new species.
-            if (!speciesFound) {
-                species.add(new Species(agentID, agentNetwork));
+        // For each organism in the population, see if it is compatible with any existing species. Most organisms were
+        // already checked when they were made, so only the rest are compared now. The organisms that fit none of them
+        // are then split into new species.
+        int[] speciesIndices = new int[organisms.size()];
+        for (int agentID = 0; agentID < organisms.size(); agentID++) {
+            speciesIndices[agentID] = compatibilityCache.get(agentID, organisms.get(agentID));
+        }
+        speciation.matchRepresentatives(organisms, compatibilityNetworks(), speciesIndices);
+        speciation.foundSpecies(organisms, species.size(), speciesIndices);
+
+        // The founder of a new species always comes before the rest of its organisms.
+        for (int agentID = 0; agentID < organisms.size(); agentID++) {
+            CPPNNetworkIF agentNetwork = organisms.get(agentID);
+            if (speciesIndices[agentID] == species.size()) {
+                species.add(new Species(agentID, agentNetwork, takenColors));
+            } else {
+                species.get(speciesIndices[agentID]).addOrganism(agentID, agentNetwork);
             }
         }
+        compatibilityCache.clear();
 
         statisticsTrack();
         //Set the average fitness for a species
@@ -262,9 +499,9 @@ public class Population extends ReusedCode implements HNPopulationIF, Population
     private void removeBadSpecies() {
         double avgSum = getAvgFitnessSum();
         for (int i = 0; i < species.size(); i++) {
-            if (!species.get(i).getOrganisms().containsKey(bestAgentID)) {
+            if (!species.get(i).getOrganisms().contains(bestAgentID)) {
                 if (species.get(i).getAverageFitness() / avgSum * organisms.size() < 1 || species.get(i).size() < 1) {
-                    Species.takenColors.remove(species.get(i).getColor());
+                    takenColors.remove(species.get(i).getColor());
                     species.remove(i);
                     i--;
                 }
@@ -293,6 +530,14 @@ public class Population extends ReusedCode implements HNPopulationIF, Population
         return species;
     }
 
+    /**
+     * Gets the colors used by the species
+     * @return The colors used by the species
+     */
+    public List<Color> getTakenColors() {
+        return takenColors;
+    }
+
     /**
      * The best agent of the population
      * @return The ID of the best agent
@@ -301,6 +546,44 @@ public class Population extends ReusedCode implements HNPopulationIF, Population
         return bestAgentID;
     }
 
+    @Override
+    public void setStatistics(MetricsSink stats) {
+        this.stats = stats;
+    }
+
+    /**
+     * Returns copies of the networks of the fittest organisms, fittest first. A copy of a CPPN draws the seed of its
+     * substrate, so the copies are made from the random numbers of this population whichever thread asks for them.
+     * @param count The number of networks to copy.
+     * @return Copies of the fittest networks.
+     */
+    @Override
+    public List<NetworkIF> getFittestNetworks(int count) {
+        int[] ranking = organisms.rankByFitness(CPPNNetworkIF::getFitness);
+        List<NetworkIF> fittest = new ArrayList<>();
+        Random previous = RandomSource.use(random);
+        try {
+            for (int i = 0; i < Math.min(count, ranking.length); i++) {
+                CPPNNetworkIF original = organisms.get(ranking[i]);
+                CPPNNetworkIF copy = original.clone();
+                copy.setFitness(original.getFitness());
+                fittest.add(copy);
+            }
+        } finally {
+            RandomSource.use(previous);
+        }
+        return fittest;
+    }
+
+    @Override
+    public void replaceWeakest(List<NetworkIF> networks) {
+        int[] ranking = organisms.rankByFitness(CPPNNetworkIF::getFitness);
+        int count = Math.min(networks.size(), ranking.length - 1);
+        for (int i = 0; i < count; i++) {
+            organisms.set(ranking[ranking.length - 1 - i], new CPPN((CPPN) networks.get(i), innovationRegistry));
+        }
+    }
+
     /**
      * Get the type of AI
      * @return False if HyperNEAT and True if NEAT
@@ -1,13 +1,18 @@
 package hyperneat;
 
+import AIinterfaces.InnovationRegistry;
 import AIinterfaces.NetworkIF.CPPNNetworkIF;
 import AIinterfaces.NetworkIF.HNNetworkIF;
+import AIinterfaces.RandomSource;
 import AIinterfaces.ReusedCode;
 import AIinterfaces.SpeciesIF.HNSpeciesIF;
+import AIinterfaces.SpeciesMembers;
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.Colors;
 import com.badlogic.gdx.utils.Array;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -19,14 +24,11 @@ import java.util.*;
  */
 public class Species extends ReusedCode implements HNSpeciesIF {
 
-    /** Static list of colors that are already being used by species. */
-    public static List<Color> takenColors = new ArrayList<>();
-
     /** The network other networks will be tested against to see if they are compatible with this species. */
     private CPPNNetworkIF compatibilityNetwork;
 
-    /** A mapping of agent IDs to their networks. */
-    private Map<Integer, CPPNNetworkIF> organisms;
+    /** The agent IDs of the organisms in this species and their networks. */
+    private final SpeciesMembers<CPPNNetworkIF> organisms;
 
     /** The ID number of the best organism in this species this generation. */
     private int bestOrgID;
@@ -50,26 +52,62 @@ public class Species extends ReusedCode implements HNSpeciesIF {
      * Constructor for an organism's species.
      * @param agentID      The ID number of the first agent to be assigned to this species.
      * @param agentNetwork The network used by the first agent to be assigned to this species.
+     * @param takenColors  The colors already used by the species of the population. The color of this species is
+     *                     added to them.
      */
-    public Species(int agentID, CPPNNetworkIF agentNetwork) {
+    public Species(int agentID, CPPNNetworkIF agentNetwork, List<Color> takenColors) {
         compatibilityNetwork = (agentNetwork).clone();
-        organisms = new HashMap<>();
-        organisms.put(agentID, agentNetwork);
+        organisms = new SpeciesMembers<>();
+        organisms.add(agentID, agentNetwork);
         bestOrgID = agentID;
         bestFitness = 0;
         averageFitness = 0.0;
         staleness = 0;
         this.size = organisms.size();
 
-        Array<Color> colors = Colors.getColors().values().toArray();
+        Array<Color> colors = listColors();
         do {
             // Randomly generate a color till we have a good one.
-            color = colors.get(new Random().nextInt(colors.size));
-            System.err.println("Color: ");
+            color = colors.get(RandomSource.current().nextInt(colors.size));
         } while (takenColors.contains(color) || color == Color.CLEAR);
         takenColors.add(color);
     }
 
+    /**
+     * Reads a species back from a checkpoint written by write, without any organisms. The size it had is kept, as it
+     * is only brought up to date once organisms are added or culled.
+     * @param in The input to read from.
+     * @param innovationRegistry The registry of innovation numbers of the population.
+     * @throws IOException If the input can not be read or does not hold a species.
+     */
+    public Species(DataInput in, InnovationRegistry innovationRegistry) throws IOException {
+        compatibilityNetwork = new CPPN(in, innovationRegistry);
+        organisms = new SpeciesMembers<>();
+        bestOrgID = in.readInt();
+        bestFitness = in.readInt();
+        averageFitness = in.readDouble();
+        staleness = in.readInt();
+        color = readColor(in);
+        size = in.readInt();
+    }
+
+    /**
+     * Writes this species to a checkpoint: its compatibility network, its best organism and fitness, its staleness,
+     * its color and its size.
+     * @param out The output to write to.
+     * @throws IOException If the output can not be written to.
+     */
+    @Override
+    public void write(DataOutput out) throws IOException {
+        compatibilityNetwork.write(out);
+        out.writeInt(bestOrgID);
+        out.writeInt(bestFitness);
+        out.writeDouble(averageFitness);
+        out.writeInt(staleness);
+        writeColor(color, out);
+        out.writeInt(size);
+    }
+
     /**
      * Returns the color assigned to this species.
      * @return The color assigned to this species.
@@ -88,28 +126,25 @@ public class Species extends ReusedCode implements HNSpeciesIF {
 
     /** Sets the compatibility network to a random organism that is in this species. */
     public void setCompatibilityNetwork() {
-        Random r = new Random();
-        Set<Integer> keySet = organisms.keySet();
-        int key = (int) keySet.toArray()[r.nextInt(keySet.size())];
-        compatibilityNetwork = organisms.get(key);
+        compatibilityNetwork = organisms.get(RandomSource.current().nextInt(organisms.size()));
     }
 
     /**
-     * Returns the mapping of agent IDs and their networks.
-     * @return The mapping of agent IDs and their networks.
+     * Returns the agent IDs of the organisms in this species and their networks.
+     * @return The agent IDs of the organisms and their networks.
      */
-    public Map<Integer, CPPNNetworkIF> getOrganisms() {
+    public SpeciesMembers<CPPNNetworkIF> getOrganisms() {
         return organisms;
     }
 
     /**
-     * Adds an organism to the mapping of organisms in this species.
+     * Adds an organism to the organisms in this species.
      * @param agentID      The ID number of the agent.
      * @param agentNetwork The network the agent uses.
      */
     public void addOrganism(int agentID, CPPNNetworkIF agentNetwork) {
 
-        organisms.put(agentID, agentNetwork);
+        organisms.add(agentID, agentNetwork);
         this.size = organisms.size();
     }
 
@@ -132,8 +167,8 @@ public class Species extends ReusedCode implements HNSpeciesIF {
     /** Calculates the average fitness for this species and sets it. */
     public void setAverageFitness() {
         double fitnessSum = 0.0;
-        for (CPPNNetworkIF network : organisms.values()) {
-            fitnessSum += network.getFitness();
+        for (int i = 0; i < organisms.size(); i++) {
+            fitnessSum += organisms.get(i).getFitness();
         }
         if (organisms.isEmpty()) {
             averageFitness = 0;
@@ -156,10 +191,10 @@ public class Species extends ReusedCode implements HNSpeciesIF {
      */
     public void setStaleness() {
         int generationMaxFitness = -1;
-        for (Map.Entry<Integer, CPPNNetworkIF> organism : organisms.entrySet()) {
-            if (organism.getValue().getFitness() > generationMaxFitness) {
-                generationMaxFitness = organism.getValue().getFitness();
-                bestOrgID = organism.getKey();
+        for (int i = 0; i < organisms.size(); i++) {
+            if (organisms.get(i).getFitness() > generationMaxFitness) {
+                generationMaxFitness = organisms.get(i).getFitness();
+                bestOrgID = organisms.getID(i);
             }
         }
         if (generationMaxFitness > bestFitness) {
@@ -172,32 +207,11 @@ public class Species extends ReusedCode implements HNSpeciesIF {
 
     /**
      * Takes the top 50% of networks in this species and retains them. Culls the bottom 50% so that they will not
-     * pollute the gene pool.
+     * pollute the gene pool. A species always keeps at least its best network.
      */
     public void cull() {
-        Map<Integer, CPPNNetworkIF> survivors = new HashMap<>();
-        //Go through each organism
-        for (Map.Entry<Integer, CPPNNetworkIF> organism : organisms.entrySet()) {
-            int maxOrganism = organism.getKey();
-            int maxFitness = organism.getValue().getFitness();
-            //Find the max fitness and organism
-            for (Map.Entry<Integer, CPPNNetworkIF> other : organisms.entrySet()) {
-                int otherOrganism = other.getKey();
-                int otherFitness = other.getValue().getFitness();
-
-                if (!survivors.containsKey(otherOrganism) && otherFitness > maxFitness) {
-                    maxOrganism = otherOrganism;
-                    maxFitness = otherFitness;
-                }
-            }
-            survivors.put(maxOrganism, organisms.get(maxOrganism).clone());
-            organisms.get(maxOrganism).getCPPNetwork().setFitness(-1);
-
-            if (survivors.size() >= organisms.size() * Coefficients.CULL_THRESH.getValue()) {
-                break;
-            }
-        }
-        organisms = survivors;
+        int survivors = (int) Math.ceil(organisms.size() * Coefficients.CULL_THRESH.getValue());
+        organisms.retainFittest(Math.max(1, survivors), CPPNNetworkIF::getFitness);
         this.size = organisms.size();
     }
 
@@ -206,36 +220,37 @@ public class Species extends ReusedCode implements HNSpeciesIF {
      * prevent any one species from taking over the entire population.
      */
     public void shareFitness() {
-        for (CPPNNetworkIF network : organisms.values()) {
+        for (int i = 0; i < organisms.size(); i++) {
+            CPPNNetworkIF network = organisms.get(i);
             network.getCPPNetwork().setFitness(network.getFitness() / organisms.size());
         }
     }
 
     /**
      * Generates a new network either through crossover of two random parent networks or through a direct clone of a
-     * random network in the species. The new network is then mutated in the hopes that we find a favorable mutation.
+     * random network in the species. The weights of the new network are then mutated in the hopes that we find a
+     * favorable mutation. Its structure is mutated by the population once every baby is bred.
      * @return The new network we have produced and mutated.
      */
-    public CPPNNetworkIF reproduce() {
+    public CPPNNetworkIF breed() {
 
         CPPN baby;
 
-        if (Math.random() < Coefficients.CROSSOVER_THRESH.getValue()) {
-            Object[] networks = organisms.values().toArray();
-            CPPN parent1 = (CPPN) networks[new Random().nextInt(networks.length)];
-            CPPN parent2 = (CPPN) networks[new Random().nextInt(networks.length)];
+        Random random = RandomSource.current();
+        if (random.nextDouble() < Coefficients.CROSSOVER_THRESH.getValue()) {
+            CPPN parent1 = (CPPN) organisms.get(random.nextInt(organisms.size()));
+            CPPN parent2 = (CPPN) organisms.get(random.nextInt(organisms.size()));
             if (parent1.getFitness() < parent2.getFitness()) {
                 baby = (CPPN) crossover(parent1, parent2);
             } else {
                 baby = (CPPN) crossover(parent2, parent1);
             }
         } else {
-            Object[] networks = organisms.values().toArray();
-            CPPN parent = (CPPN) networks[new Random().nextInt(networks.length)];
+            CPPN parent = (CPPN) organisms.get(random.nextInt(organisms.size()));
             baby = parent.clone();
         }
 
-        baby.mutate();
+        baby.mutateWeights();
         return baby;
     }
 
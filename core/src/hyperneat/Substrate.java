@@ -1,193 +1,181 @@
 package hyperneat;
 
-import AIinterfaces.LinkIF;
+import AIinterfaces.CompiledNetwork;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Random;
 
 /**
- * This models a substrate with input layer, output layer, or sandwich layers.
+ * This models a substrate with input layer, output layer, or sandwich layers. Every node of a layer is connected to
+ * every node of the next layer, so each of these connections is stored as a dense weight matrix and a feed forward is
+ * a matrix-vector product per connection.
  * @author Brooke Kiser and Tyler McVeigh
  * @version 22nd November, 2020
  */
 public class Substrate {
 
+    /** The slope of the parameterized ReLU of every node. Substrate nodes never learn their slope. */
+    private static final double SLOPE = 4.0;
+
     /** Size of the substrate layers */
     private final int substrateSize;
 
-    /** A list of all input nodes in this network. No new input nodes should be added over time. */
-    private final List<Node> inputNodes;
+    /** The number of nodes in one layer. */
+    private final int layerSize;
+
+    /** The number of input nodes, which are the first nodes of the first row of the input layer. */
+    private final int inputNum;
 
-    /** A list of all output nodes in this network. No new output nodes should be added over time. */
-    private final List<Node> outputNodes;
+    /** The indices of the output nodes, which are the first nodes of the last row of the output layer. */
+    private final int[] outputNodes;
 
-    /** A double array for the input layer */
-    private final Node[][] inputLayer;
+    /**
+     * The weights of the links between two layers, keyed by the coordinates of both ends. The link from node (x1, y1)
+     * to node (x2, y2) is at index (x1 * substrateSize + y1) * layerSize + x2 * substrateSize + y2. The links from the
+     * input layer to the sandwich layer and from the sandwich layer to the output layer always share their weights, so
+     * both use this one table.
+     */
+    private final double[] weights;
 
-    /** A double array for the sandwich layer */
-    private final Node[][] sandwichLayer;
+    /** The activation function of each node in the sandwich layer. */
+    private final int[] sandwichActivations;
 
-    /** A double array for the output layer */
-    private final Node[][] outputLayer;
+    /** The activation function of each node in the output layer. */
+    private final int[] outputActivations;
+
+    /** The values of the sandwich layer nodes, first before and then after activation. */
+    private final double[] sandwichValues;
 
     /**
      * Our network constructor. Builds an initial fully connected network of input and output nodes.
      * @param inputNum  The number of input nodes to have.
      * @param outputNum The number of output nodes to have.
+     * @param substrateSize The number of nodes along each side of a layer.
+     * @param random    The random numbers to pick the activation function of each node with.
      */
-    public Substrate(int inputNum, int outputNum, int substrateSize) {
+    public Substrate(int inputNum, int outputNum, int substrateSize, Random random) {
         this.substrateSize = substrateSize;
-        this.inputNodes = new ArrayList<Node>();
-        this.outputNodes = new ArrayList<Node>();
-
-        this.inputLayer = this.generateNodes(0);
-        this.sandwichLayer = this.generateNodes(1);
-        this.outputLayer = this.generateNodes(2);
+        this.layerSize = substrateSize * substrateSize;
+        this.inputNum = inputNum;
 
-        this.generateLinks(this.inputLayer, this.sandwichLayer);
-        this.generateLinks(this.sandwichLayer, this.outputLayer);
+        //The weights of the links will initially be set to 0
+        this.weights = new double[this.layerSize * this.layerSize];
 
-        //Populate the input nodes from the input layer
-        for (int i = 0; i < inputNum; i++) {
-            this.inputNodes.add(this.inputLayer[0][i]);
-        }
+        this.sandwichActivations = this.generateActivations(random);
+        this.outputActivations = this.generateActivations(random);
+        this.sandwichValues = new double[this.layerSize];
 
-        //Populate the output nodes from the output layer
+        //Populate the output nodes from the last row of the output layer
+        this.outputNodes = new int[outputNum];
         for (int i = 0; i < outputNum; i++) {
-            this.outputNodes.add(this.outputLayer[this.substrateSize - 1][i]);
+            this.outputNodes[i] = (this.substrateSize - 1) * this.substrateSize + i;
         }
     }
 
     /**
-     * Populates a layer of the substrate with nodes
-     * @param layerNum The number responding to the layer
-     * @return The double array containing the populated layer
+     * Picks a random activation function for each node of a layer.
+     * @param random The random numbers to pick the activation functions with.
+     * @return The activation function of each node in the layer.
      */
-    private Node[][] generateNodes(int layerNum) {
-        Node[][] layerNodes = new Node[this.substrateSize][this.substrateSize];
-        int id = 0;
-        for (int i = 0; i < this.substrateSize; i++) {
-            for (int j = 0; j < this.substrateSize; j++) {
-                layerNodes[i][j] = new Node(id, layerNum);
-                id++;
-            }
+    private int[] generateActivations(Random random) {
+        int[] activations = new int[this.layerSize];
+        for (int i = 0; i < this.layerSize; i++) {
+            activations[i] = random.nextInt(4);
         }
-        return layerNodes;
+        return activations;
+    }
+
+    /**
+     * Connects an input node to an output node by a link of a determined link weight.
+     * @param inputX The first value of the input node
+     * @param inputY The second value of the input node
+     * @param outX   The first value of the output node
+     * @param outY   The second value of the output node
+     * @param weight The weight of the link
+     */
+    public void setLinkWeight(int inputX, int inputY, int outX, int outY, double weight) {
+        this.weights[this.indexOf(inputX, inputY, outX, outY)] = weight;
     }
 
     /**
-     * Create the links between all the layers. The weight of the links will initially be set to 0. This will set up the
-     * links between the input and outgoing nodes in the substrate.
-     * @param inputLayer    The layer with the input nodes
-     * @param outgoingLayer The output layer to set to the input layer
+     * Sets the weight of every link at once. The weights are ordered by the coordinates of the input node and then
+     * the output node, the same order as nested loops over (inputX, inputY, outX, outY).
+     * @param weights The weights of every link
      */
-    private void generateLinks(Node[][] inputLayer, Node[][] outgoingLayer) {
-        int innoNum = 0;
-        for (int i = 0; i < this.substrateSize; i++) {
-            for (int j = 0; j < this.substrateSize; j++) {
-                for (int k = 0; k < this.substrateSize; k++) {
-                    for (int l = 0; l < this.substrateSize; l++) {
-                        Link link = new Link(innoNum++, inputLayer[i][j].getId(),
-                                outgoingLayer[k][l], 0);
-                        inputLayer[i][j].addLink(link);
-                    }
-                }
-            }
-        }//end nested loops
+    public void setLinkWeights(double[] weights) {
+        System.arraycopy(weights, 0, this.weights, 0, this.weights.length);
     }
 
     /**
-     * Connects an input node to an output node by a link of a determined link weight.
+     * Returns the weight of the link between an input node and an output node.
      * @param inputX The first value of the input node
      * @param inputY The second value of the input node
      * @param outX   The first value of the output node
      * @param outY   The second value of the output node
-     * @param weight The weight of the link
+     * @return The weight of the link
      */
-    public void setLinkWeight(int inputX, int inputY, int outX, int outY, double weight) {
-        Node inputNode = this.inputLayer[inputX][inputY];
-        Node sandwichFromIn = this.sandwichLayer[outX][outY];
-        Node sandwichToOut = this.sandwichLayer[inputX][inputY];
-        Node outputNode = this.outputLayer[outX][outY];
-
-        LinkIF link;
-        boolean found = false;
-        List<LinkIF> links = inputNode.getOutgoingLinks();
-        for (int i = 0; i < links.size() && !found; i++) {
-            link = links.get(i);
-            if (link.getOutputNode().equals(sandwichFromIn)) {
-                found = true;
-                link.setWeight(weight);
-            }
-        }
+    public double getLinkWeight(int inputX, int inputY, int outX, int outY) {
+        return this.weights[this.indexOf(inputX, inputY, outX, outY)];
+    }
 
-        found = false;
-        links = sandwichToOut.getOutgoingLinks();
-        for (int i = 0; i < links.size() && !found; i++) {
-            link = links.get(i);
-            if (link.getOutputNode().equals(outputNode)) {
-                found = true;
-                link.setWeight(weight);
-            }
-        }
+    /**
+     * Returns the index of the link between an input node and an output node in the weight table.
+     * @param inputX The first value of the input node
+     * @param inputY The second value of the input node
+     * @param outX   The first value of the output node
+     * @param outY   The second value of the output node
+     * @return The index of the link
+     */
+    private int indexOf(int inputX, int inputY, int outX, int outY) {
+        return (inputX * this.substrateSize + inputY) * this.layerSize + outX * this.substrateSize + outY;
     }
 
     /**
-     * Activates every node in the network in a certain specified order. Should traverse from input -> bias -> hidden ->
-     * output.
+     * Activates every node in the network in a certain specified order. Should traverse from input -> sandwich ->
+     * output. Only the input nodes of the input layer ever hold a value, and only the output nodes of the output layer
+     * are ever read, so the products skip every other row and column.
      * @param inputValues The values to be set as our input layer nodes' output values.
      * @return The output values in our output nodes after every node has been activated.
      */
     public double[] feedForward(float[] inputValues) {
-        // Set the output values of our input nodes to the supplied input values.
-        for (int i = 0; i < inputNodes.size(); i++) {
-            inputNodes.get(i).setOutputValue(inputValues[i]);
-        }
-
-        // Activate the nodes in order from input node -> bias -> hidden -> output.
-        for (Node[] nodes : inputLayer) {
-            for (Node node : nodes) {
-                node.activate();
-            }
-        }
-
-        for (Node[] nodes : sandwichLayer) {
-            for (Node node : nodes) {
-                node.activate();
-            }
-        }
-
-        for (Node[] nodes : outputLayer) {
-            for (Node node : nodes) {
-                node.activate();
-            }
-        }
+        double[] outputs = new double[this.outputNodes.length];
+        this.feedForward(inputValues, outputs);
+        return outputs;
+    }
 
-        // Write the output values to a double array to pass back as the decisions of this network.
-        double[] outputs = new double[outputNodes.size()];
-        for (int i = 0; i < outputNodes.size(); i++) {
-            outputs[i] = (outputNodes.get(i).getOutputValue());
+    /**
+     * Activates every node in the network like {@link #feedForward(float[])}, but writes the output values into the
+     * supplied array instead of a new one.
+     * @param inputValues The values to be set as our input layer nodes' output values.
+     * @param outputs     The array to write the output values in our output nodes to.
+     */
+    public void feedForward(float[] inputValues, double[] outputs) {
+        // Sum up the values the input nodes send to each sandwich node.
+        for (int j = 0; j < this.layerSize; j++) {
+            this.sandwichValues[j] = 0;
         }
-
-        // Set all input values back to 0 for the next feed forward.
-        for (Node[] nodes : inputLayer) {
-            for (Node node : nodes) {
-                node.setInputValue(0);
+        for (int i = 0; i < this.inputNum; i++) {
+            double value = inputValues[i];
+            int row = i * this.layerSize;
+            for (int j = 0; j < this.layerSize; j++) {
+                this.sandwichValues[j] += this.weights[row + j] * value;
             }
         }
 
-        for (Node[] nodes : sandwichLayer) {
-            for (Node node : nodes) {
-                node.setInputValue(0);
-            }
+        // Activate the sandwich nodes.
+        for (int j = 0; j < this.layerSize; j++) {
+            this.sandwichValues[j] = CompiledNetwork.activate(this.sandwichActivations[j], SLOPE,
+                    this.sandwichValues[j]);
         }
 
-        for (Node[] nodes : outputLayer) {
-            for (Node node : nodes) {
-                node.setInputValue(0);
+        // Sum up the values the sandwich nodes send to each output node and activate it.
+        for (int o = 0; o < this.outputNodes.length; o++) {
+            int node = this.outputNodes[o];
+            double sum = 0;
+            for (int i = 0; i < this.layerSize; i++) {
+                sum += this.weights[i * this.layerSize + node] * this.sandwichValues[i];
             }
+            outputs[o] = CompiledNetwork.activate(this.outputActivations[node], SLOPE, sum);
         }
-        return outputs;
     }
 
 }
@@ -1,42 +1,37 @@
 package neat;
 
+import AIinterfaces.LinkIF;
+import AIinterfaces.NodeIF.NEATNodeIF;
+
 /**
  * Represents a connection between two nodes in our network. Each connection is given an
- * innovation number which assists in crossover between two separate networks.
+ * innovation number which assists in crossover between two separate networks. A link is only a
+ * view of its gene in the link genes of the network, which hold everything about it, so it is
+ * cheap to make and any change made through it is made to the gene itself.
  * @author Chance Simmons and Brandon Townsend
  * @version 22nd November, 2020
  * @additions Brooke Kiser and Tyler McVeigh
  */
-public class Link {
+public class Link implements LinkIF {
+
+    /** The link genes of the network this link belongs to. */
+    private final LinkGenes genes;
 
     /** The innovation number assigned to this link. */
     private final int innovationNum;
 
-    /** The input node this link is connected to. */
-    private final int inputNodeID;
-
-    /** The output node this link is connected to. */
-    private final Node outputNode;
-
-    /** The weight that is assigned to this link. Should be between -1 and 1. */
-    private double weight;
-
-    /** Represents whether this link is enabled in our network or not. */
-    private final boolean enabled;
+    /** Where the gene of this link was last found. Genes only move when one is added before. */
+    private int index;
 
     /**
-     * Constructor for links. Accepts an innovation number, the identification numbers of the
-     * input and output nodes, and generates a new weight between -1 and 1.
-     * @param innovationNum The supplied innovation number.
-     * @param inputNodeID The supplied id number for this links input node.
-     * @param outputNode The supplied node for this links output node.
+     * Constructor for a view of the gene at the supplied index.
+     * @param genes The link genes of the network this link belongs to.
+     * @param index The index of the gene.
      */
-    public Link(int innovationNum, int inputNodeID, Node outputNode, double weight) {
-        this.innovationNum = innovationNum;
-        this.inputNodeID = inputNodeID;
-        this.outputNode = outputNode;
-        this.weight = weight;
-        this.enabled = true;
+    public Link(LinkGenes genes, int index) {
+        this.genes = genes;
+        this.innovationNum = genes.getInnovationNum(index);
+        this.index = index;
     }
 
     /**
@@ -52,15 +47,15 @@ public class Link {
      * @return This links input node ID.
      */
     public int getInputNodeID() {
-        return inputNodeID;
+        return genes.getInputNodeID(locate());
     }
 
     /**
      * Returns this links output node.
      * @return This links output node.
      */
-    public Node getOutputNode() {
-        return outputNode;
+    public NEATNodeIF getOutputNode() {
+        return genes.getNetwork().getNode(genes.getOutputNodeID(locate()));
     }
 
     /**
@@ -68,7 +63,7 @@ public class Link {
      * @return This links weight.
      */
     public double getWeight() {
-        return weight;
+        return genes.getWeight(locate());
     }
 
     /**
@@ -76,7 +71,7 @@ public class Link {
      * @param weight The weight to set this link to.
      */
     public void setWeight(double weight) {
-        this.weight = weight;
+        genes.setWeight(locate(), weight);
     }
 
     /**
@@ -84,7 +79,27 @@ public class Link {
      * @return True if enabled, false otherwise.
      */
     public boolean isEnabled() {
-        return enabled;
+        return genes.isEnabled(locate());
+    }
+
+    /**
+     * Enables or disables this link.
+     * @param enabled Whether this link should be enabled.
+     */
+    public void setEnabled(boolean enabled) {
+        genes.setEnabled(locate(), enabled);
+    }
+
+    /**
+     * Returns the index of the gene of this link, looking it up again if genes were added before
+     * it since it was last found.
+     * @return The index of the gene of this link.
+     */
+    private int locate() {
+        if(index >= genes.size() || genes.getInnovationNum(index) != innovationNum) {
+            index = genes.indexOf(innovationNum);
+        }
+        return index;
     }
 
     /**
@@ -101,4 +116,13 @@ public class Link {
         }
         return false;
     }
+
+    /**
+     * Returns a hash code that agrees with equals.
+     * @return The innovation number of this link.
+     */
+    @Override
+    public int hashCode() {
+        return innovationNum;
+    }
 }
@@ -0,0 +1,430 @@
+package neat;
+
+import AIinterfaces.LinkIF;
+import AIinterfaces.ReusedCode;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The link genes of a network, kept as parallel arrays of primitives in order by innovation
+ * number: the innovation number, the IDs of the input and output nodes, the weight and whether the
+ * link is enabled, the last kept as a bitset. These arrays are the only place a link is stored. The
+ * links of the network and the outgoing links of its nodes are flyweight views of the genes, so a
+ * change made through either is seen by both. Copies share the arrays with the genes they were
+ * copied from until either of them is changed, which is when the one being changed copies them,
+ * so a network that is copied but never mutated costs next to nothing. The outgoing links of a
+ * node are found through an index of the genes by the ID of their input node, built once for
+ * every set of genes and shared by copies until a gene is added.
+ */
+public class LinkGenes {
+
+    /** The number of genes room is first made for. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** The network the genes belong to, which the output nodes of the links are found in. */
+    private final Network network;
+
+    /** The number of genes. */
+    private int size;
+
+    /** The innovation number of each gene, in increasing order. */
+    private int[] innovations;
+
+    /** The ID of the input node of each gene. */
+    private int[] inputs;
+
+    /** The ID of the output node of each gene. */
+    private int[] outputs;
+
+    /** The weight of each gene. */
+    private double[] weights;
+
+    /** Whether each gene is enabled, one bit for every gene. */
+    private long[] enabled;
+
+    /** The number of times the genes have been changed, so the network knows to compile again. */
+    private int changes;
+
+    /** Whether the arrays may be shared with other genes, so they must be copied before a change. */
+    private boolean shared;
+
+    /**
+     * The index into genesBySource where the genes of each input node start, indexed by the ID of
+     * the input node plus one and followed by the number of genes. Null until the outgoing links
+     * of a node are first needed after a gene is added.
+     */
+    private int[] sourceStarts;
+
+    /** The index of every gene in order by the ID of its input node, then by innovation number. */
+    private int[] genesBySource;
+
+    /**
+     * Creates the genes of a network without any links.
+     * @param network The network the genes belong to.
+     */
+    public LinkGenes(Network network) {
+        this.network = network;
+        size = 0;
+        innovations = new int[INITIAL_CAPACITY];
+        inputs = new int[INITIAL_CAPACITY];
+        outputs = new int[INITIAL_CAPACITY];
+        weights = new double[INITIAL_CAPACITY];
+        enabled = new long[bitsetLength(INITIAL_CAPACITY)];
+    }
+
+    /**
+     * Copies the genes of another network, sharing their arrays until either is changed. The
+     * network they are copied to must have nodes with the same IDs, and the other genes must not
+     * be changed while they are being copied.
+     * @param network The network the copied genes belong to.
+     * @param other The genes to copy.
+     */
+    public LinkGenes(Network network, LinkGenes other) {
+        this.network = network;
+        size = other.size;
+        innovations = other.innovations;
+        inputs = other.inputs;
+        outputs = other.outputs;
+        weights = other.weights;
+        enabled = other.enabled;
+        sourceStarts = other.sourceStarts;
+        genesBySource = other.genesBySource;
+        shared = true;
+        other.shared = true;
+    }
+
+    /**
+     * Returns the number of genes.
+     * @return The number of genes.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of times the genes have been changed so far.
+     * @return The number of changes.
+     */
+    public int getChanges() {
+        return changes;
+    }
+
+    /**
+     * Returns the innovation number of the gene at the supplied index.
+     * @param index The index of the gene.
+     * @return The innovation number of the gene.
+     */
+    public int getInnovationNum(int index) {
+        return innovations[index];
+    }
+
+    /**
+     * Returns the ID of the input node of the gene at the supplied index.
+     * @param index The index of the gene.
+     * @return The ID of the input node.
+     */
+    public int getInputNodeID(int index) {
+        return inputs[index];
+    }
+
+    /**
+     * Returns the ID of the output node of the gene at the supplied index.
+     * @param index The index of the gene.
+     * @return The ID of the output node.
+     */
+    public int getOutputNodeID(int index) {
+        return outputs[index];
+    }
+
+    /**
+     * Returns the weight of the gene at the supplied index.
+     * @param index The index of the gene.
+     * @return The weight of the gene.
+     */
+    public double getWeight(int index) {
+        return weights[index];
+    }
+
+    /**
+     * Sets the weight of the gene at the supplied index.
+     * @param index The index of the gene.
+     * @param weight The weight to give the gene.
+     */
+    public void setWeight(int index, double weight) {
+        unshare();
+        weights[index] = weight;
+        changes++;
+    }
+
+    /**
+     * Returns whether the gene at the supplied index is enabled.
+     * @param index The index of the gene.
+     * @return True if the gene is enabled, false otherwise.
+     */
+    public boolean isEnabled(int index) {
+        return (enabled[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Enables or disables the gene at the supplied index.
+     * @param index The index of the gene.
+     * @param isEnabled Whether the gene should be enabled.
+     */
+    public void setEnabled(int index, boolean isEnabled) {
+        unshare();
+        setBit(index, isEnabled);
+        changes++;
+    }
+
+    /**
+     * Returns the index of the gene with the supplied innovation number.
+     * @param innovationNumber The innovation number of the gene.
+     * @return The index of the gene, or -1 if there is no such gene.
+     */
+    public int indexOf(int innovationNumber) {
+        int index = Arrays.binarySearch(innovations, 0, size, innovationNumber);
+        return index < 0 ? -1 : index;
+    }
+
+    /**
+     * Adds an enabled gene, keeping the genes in order by innovation number. Nothing is added if
+     * there already is a gene with the same innovation number.
+     * @param innovationNumber The innovation number of the gene.
+     * @param inputID The ID of the input node.
+     * @param outputID The ID of the output node.
+     * @param weight The weight of the gene.
+     */
+    public void add(int innovationNumber, int inputID, int outputID, double weight) {
+        int index = Arrays.binarySearch(innovations, 0, size, innovationNumber);
+        if(index >= 0) {
+            return;
+        }
+        index = -index - 1;
+        if(size == innovations.length) {
+            grow();
+        } else {
+            unshare();
+        }
+        int moved = size - index;
+        System.arraycopy(innovations, index, innovations, index + 1, moved);
+        System.arraycopy(inputs, index, inputs, index + 1, moved);
+        System.arraycopy(outputs, index, outputs, index + 1, moved);
+        System.arraycopy(weights, index, weights, index + 1, moved);
+        for(int i = size; i > index; i--) {
+            setBit(i, isEnabled(i - 1));
+        }
+        innovations[index] = innovationNumber;
+        inputs[index] = inputID;
+        outputs[index] = outputID;
+        weights[index] = weight;
+        setBit(index, true);
+        size++;
+        changes++;
+        sourceStarts = null;
+        genesBySource = null;
+    }
+
+    /**
+     * Returns the genes as a list of links in order by innovation number. The list is a view of
+     * the genes, so it always holds the genes as they are, and the links in it are views as well.
+     * Links can only be added through the network.
+     * @return The genes as a list of links.
+     */
+    public List<LinkIF> asList() {
+        return new Links();
+    }
+
+    /**
+     * Returns the genes whose input node has the supplied ID as a list of links, in order by
+     * innovation number. The list is made when asked for, so it does not see genes added later.
+     * @param inputID The ID of the input node.
+     * @return The outgoing links of the node.
+     */
+    public List<LinkIF> outgoingLinks(int inputID) {
+        indexSources();
+        int source = inputID + 1;
+        if(source < 0 || source >= sourceStarts.length - 1) {
+            return new ArrayList<>();
+        }
+        List<LinkIF> outgoing = new ArrayList<>(sourceStarts[source + 1] - sourceStarts[source]);
+        for(int i = sourceStarts[source]; i < sourceStarts[source + 1]; i++) {
+            outgoing.add(new Link(this, genesBySource[i]));
+        }
+        return outgoing;
+    }
+
+    /**
+     * Returns whether there is a gene from the node with the first ID to the node with the second.
+     * @param inputID The ID of the input node.
+     * @param outputID The ID of the output node.
+     * @return True if the nodes are connected, false otherwise.
+     */
+    public boolean connects(int inputID, int outputID) {
+        indexSources();
+        int source = inputID + 1;
+        if(source < 0 || source >= sourceStarts.length - 1) {
+            return false;
+        }
+        for(int i = sourceStarts[source]; i < sourceStarts[source + 1]; i++) {
+            if(outputs[genesBySource[i]] == outputID) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Indexes the genes by the ID of their input node if they have not been indexed since a gene
+     * was last added. The genes are counted for every input node and then placed in order, so the
+     * genes of each input node stay in order by innovation number.
+     */
+    private void indexSources() {
+        if(sourceStarts != null) {
+            return;
+        }
+        int highestID = -1;
+        for(int i = 0; i < size; i++) {
+            highestID = Math.max(highestID, inputs[i]);
+        }
+        int[] starts = new int[highestID + 3];
+        for(int i = 0; i < size; i++) {
+            starts[inputs[i] + 2]++;
+        }
+        for(int source = 1; source < starts.length; source++) {
+            starts[source] += starts[source - 1];
+        }
+        int[] next = Arrays.copyOf(starts, starts.length - 1);
+        int[] genes = new int[size];
+        for(int i = 0; i < size; i++) {
+            genes[next[inputs[i] + 1]++] = i;
+        }
+        genesBySource = genes;
+        sourceStarts = starts;
+    }
+
+    /**
+     * Returns the network the genes belong to.
+     * @return The network the genes belong to.
+     */
+    Network getNetwork() {
+        return network;
+    }
+
+    /**
+     * Writes the genes to a checkpoint, in order by innovation number.
+     * @param out The output to write to.
+     * @throws IOException If the output can not be written to.
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(size);
+        for(int i = 0; i < size; i++) {
+            out.writeInt(innovations[i]);
+            out.writeInt(inputs[i]);
+            out.writeInt(outputs[i]);
+            out.writeDouble(weights[i]);
+            out.writeBoolean(isEnabled(i));
+        }
+    }
+
+    /**
+     * Reads the genes written by write back in place of these genes. The nodes of the network
+     * must already be read.
+     * @param in The input to read from.
+     * @throws IOException If the input can not be read or the genes link nodes the network does
+     * not have.
+     */
+    public void read(DataInput in) throws IOException {
+        int numGenes = ReusedCode.readSize(in);
+        unshare();
+        size = 0;
+        sourceStarts = null;
+        genesBySource = null;
+        for(int i = 0; i < numGenes; i++) {
+            int innovationNumber = in.readInt();
+            int inputID = in.readInt();
+            int outputID = in.readInt();
+            double weight = in.readDouble();
+            boolean isEnabled = in.readBoolean();
+            if(network.getNode(inputID) == null || network.getNode(outputID) == null) {
+                throw new IOException("Checkpoint links unknown nodes " + inputID + " and "
+                        + outputID);
+            }
+            if(size > 0 && innovations[size - 1] >= innovationNumber) {
+                throw new IOException("Checkpoint holds links out of order");
+            }
+            add(innovationNumber, inputID, outputID, weight);
+            setBit(size - 1, isEnabled);
+        }
+    }
+
+    /** Doubles the room for genes. The arrays are new afterwards, so they are no longer shared. */
+    private void grow() {
+        copyArrays(Math.max(INITIAL_CAPACITY, innovations.length * 2));
+    }
+
+    /** Copies the arrays if they may be shared with other genes, so they can be changed. */
+    private void unshare() {
+        if(shared) {
+            copyArrays(innovations.length);
+        }
+    }
+
+    /**
+     * Replaces the arrays with copies that have room for the supplied number of genes.
+     * @param capacity The number of genes to make room for.
+     */
+    private void copyArrays(int capacity) {
+        innovations = Arrays.copyOf(innovations, capacity);
+        inputs = Arrays.copyOf(inputs, capacity);
+        outputs = Arrays.copyOf(outputs, capacity);
+        weights = Arrays.copyOf(weights, capacity);
+        enabled = Arrays.copyOf(enabled, bitsetLength(capacity));
+        shared = false;
+    }
+
+    /**
+     * Sets or clears the enabled bit of the gene at the supplied index.
+     * @param index The index of the gene.
+     * @param value Whether the bit should be set.
+     */
+    private void setBit(int index, boolean value) {
+        if(value) {
+            enabled[index >>> 6] |= 1L << index;
+        } else {
+            enabled[index >>> 6] &= ~(1L << index);
+        }
+    }
+
+    /**
+     * Returns the number of longs a bitset needs to hold the supplied number of bits.
+     * @param bits The number of bits.
+     * @return The number of longs.
+     */
+    private static int bitsetLength(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    /** A view of the genes as a list of links, in order by innovation number. */
+    private class Links extends AbstractList<LinkIF> implements RandomAccess {
+
+        @Override
+        public LinkIF get(int index) {
+            if(index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return new Link(LinkGenes.this, index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -3,7 +3,11 @@ package neat;
 import AIinterfaces.*;
 import AIinterfaces.NetworkIF.NEATNetworkIF;
 import AIinterfaces.NodeIF.NEATNodeIF;
+import AIinterfaces.RandomSource;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -16,25 +20,43 @@ import java.util.*;
 public class Network extends ReusedCode implements NEATNetworkIF {
 
     /**
-     * A static mapping of innovation numbers. These help in identifying similar links across
-     * multiple networks during crossover.
+     * The registry of innovation numbers shared by every network of the same population. These
+     * help in identifying similar links across multiple networks during crossover.
      */
-    private static final Map<Integer, String> innovationList = new HashMap<>();
+    private final InnovationRegistry innovationRegistry;
 
-    /** A list of all links in this network. */
+    /** The link genes of this network, the only place its links are kept. */
+    private final LinkGenes linkGenes;
+
+    /** A list of all links in this network, as a view of its link genes. */
     private final List<LinkIF> links;
 
-    /** A list of all input nodes in this network. No new input nodes should be added over time.*/
-    private final NEATNodeIF[] inputNodes;
+    /** The node genes of this network, the only place its nodes are kept. */
+    private final NodeGenes nodeGenes;
+
+    /**
+     * A list of all input nodes in this network. No new input nodes should be added over time.
+     * Like the rest of the nodes, made from the node genes the first time they are needed.
+     */
+    private NEATNodeIF[] inputNodes;
 
     /** A list of all output nodes in this network. No new output nodes should be added over time.*/
-    private final NEATNodeIF[] outputNodes;
+    private NEATNodeIF[] outputNodes;
 
     /** A list of all hidden nodes in this network. This part can grow over time. */
-    private final List<NEATNodeIF> hiddenNodes;
+    private List<NEATNodeIF> hiddenNodes;
 
     /** A single bias node which should be connected to all non-input nodes. Helps with outputs. */
-    private final NEATNodeIF biasNode;
+    private NEATNodeIF biasNode;
+
+    /**
+     * Every node in this network indexed by its ID plus one, so the bias node is first. IDs that
+     * are not used by any node are left empty. Null until the nodes are first needed.
+     */
+    private List<NEATNodeIF> nodesById;
+
+    /** Every node in this network in order by their layers. Kept up to date as nodes are added. */
+    private List<NEATNodeIF> nodesByLayer;
 
     /** Counter to keep track of the number of nodes there are in our network. */
     private int numNodes;
@@ -48,25 +70,32 @@ public class Network extends ReusedCode implements NEATNetworkIF {
     /** The type of AI */
     private boolean type = false;
 
+    /** This network compiled for fast feed forwards. Compiled on first use after a change. */
+    private CompiledNetwork compiled;
+
+    /** The number of changes the link genes had when this network was last compiled. */
+    private int compiledChanges;
+
     /**
      * Our network constructor. Builds an initial fully connected network of input and output nodes.
      * @param inputNum The number of input nodes to have.
      * @param outputNum The number of output nodes to have.
+     * @param innovationRegistry The registry of innovation numbers of the population.
      */
-    public Network(int inputNum, int outputNum) {
+    public Network(int inputNum, int outputNum, InnovationRegistry innovationRegistry) {
+        this.innovationRegistry = innovationRegistry;
         numNodes = 0;
         numLayers = 0;
         fitness = 0;
-        links = new ArrayList<>();
-        inputNodes = new NEATNodeIF[inputNum];
-        outputNodes = new NEATNodeIF[outputNum];
-        hiddenNodes = new ArrayList<>();
-        biasNode = new Node(-1, numLayers);
-        biasNode.setOutputValue(1);
+        linkGenes = new LinkGenes(this);
+        links = linkGenes.asList();
+        nodeGenes = new NodeGenes(inputNum, outputNum);
+        nodeGenes.add(-1, numLayers);
+        nodeGenes.setOutputValue(-1, 1);
         numNodes++;
 
         for(int i = 0; i < inputNum; i++) {
-            inputNodes[i] = new Node(i, numLayers);
+            nodeGenes.add(nodeGenes.getInputID(i), numLayers);
             numNodes++;
         }
 
@@ -75,37 +104,155 @@ public class Network extends ReusedCode implements NEATNetworkIF {
         for(int i = 0; i < outputNum; i++) {
             // Our initial output layer is 1 since it is the layer specifically behind our input.
             // If we add a node in the hidden layer, our output layer should grow.
-            outputNodes[i] = new Node(inputNodes.length + i, numLayers);
+            nodeGenes.add(nodeGenes.getOutputID(i), numLayers);
             numNodes++;
         }
 
         // Links our input nodes to output nodes and attaches the bias node to each output node.
-        generateNetwork(this, inputNodes, outputNodes, biasNode);
+        generateNetwork(this, getInputNodes(), getOutputNodes(), getBiasNode());
     }
 
     /**
-     * Copy constructor used to deep copy a network.
+     * Copy constructor. The copy shares the genes of another NEAT network until either of them is
+     * changed, when the one being changed copies the genes it changes, so the copy behaves like a
+     * deep copy without paying for one up front. Copies that are never changed, such as champions
+     * and compatibility networks, cost next to nothing, while a baby whose weights are mutated
+     * copies its link genes but keeps sharing its node genes unless a node is added. The nodes of
+     * the copy are only made once they are needed.
      * @param network The network to copy.
      */
     public Network(NEATNetworkIF network) {
+        this(network, network.getInnovationRegistry());
+    }
+
+    /**
+     * Copies a network into one whose links are numbered by the supplied registry, such as a
+     * network that migrates to another population. Links new to the registry are given their
+     * numbers in the order the network has them. The link genes are only shared with the network
+     * when it is numbered by the same registry.
+     * @param network The network to copy.
+     * @param innovationRegistry The registry of innovation numbers of the copy.
+     */
+    public Network(NEATNetworkIF network, InnovationRegistry innovationRegistry) {
+        this.innovationRegistry = innovationRegistry;
         this.numNodes = network.getNumNodes();
         this.numLayers = network.getNumLayers();
         this.fitness = network.getFitness();
-        this.links = new ArrayList<>();
-        this.inputNodes = new Node[network.getInputNodes().length];
-        this.outputNodes = new Node[network.getOutputNodes().length];
-        this.hiddenNodes = new ArrayList<>();
-        this.biasNode = new Node(network.getBiasNode());
-        for(int i = 0; i < network.getInputNodes().length; i++) {
-            this.inputNodes[i] = new Node(network.getInputNodes()[i]);
+        boolean sameGenes = network instanceof Network
+                && network.getInnovationRegistry() == innovationRegistry;
+        if(sameGenes) {
+            this.linkGenes = new LinkGenes(this, ((Network) network).linkGenes);
+        } else {
+            this.linkGenes = new LinkGenes(this);
         }
-        for(NEATNodeIF node : network.getHiddenNodes()) {
-            this.hiddenNodes.add(new Node(node));
+        if(network instanceof Network) {
+            this.nodeGenes = new NodeGenes(((Network) network).nodeGenes);
+        } else {
+            this.nodeGenes = copyNodes(network);
         }
-        for(int i = 0; i < network.getOutputNodes().length; i++) {
-            this.outputNodes[i] = new Node(network.getOutputNodes()[i]);
+        this.links = linkGenes.asList();
+        if(!sameGenes) {
+            copyLinks(network, this);
         }
-        copyLinks(network, this);
+    }
+
+    /**
+     * Reads a network back from a checkpoint written by write.
+     * @param in The input to read from.
+     * @param innovationRegistry The registry of innovation numbers of the population.
+     * @throws IOException If the input can not be read or does not hold a network.
+     */
+    public Network(DataInput in, InnovationRegistry innovationRegistry) throws IOException {
+        this.innovationRegistry = innovationRegistry;
+        this.numNodes = readSize(in);
+        this.numLayers = readSize(in);
+        this.fitness = in.readInt();
+        this.linkGenes = new LinkGenes(this);
+        this.links = linkGenes.asList();
+        int numInputs = readSize(in);
+        int numHidden = readSize(in);
+        this.nodeGenes = new NodeGenes(numInputs, readSize(in));
+        nodeGenes.read(in, numHidden, numNodes);
+        linkGenes.read(in);
+    }
+
+    /**
+     * Copies the nodes of a network that does not keep them as node genes.
+     * @param network The network to copy the nodes of.
+     * @return The node genes of the copied nodes.
+     */
+    private static NodeGenes copyNodes(NEATNetworkIF network) {
+        NodeGenes nodes = new NodeGenes(network.getInputNodes().length,
+                network.getOutputNodes().length);
+        for(NEATNodeIF node : network.getNodesByLayer()) {
+            nodes.add(node.getId(), node.getLayer());
+            nodes.setInputValue(node.getId(), node.getInputValue());
+            nodes.setOutputValue(node.getId(), node.getOutputValue());
+        }
+        return nodes;
+    }
+
+    /**
+     * Writes this network to a checkpoint: its counters and fitness, then its nodes from the bias
+     * node through to the output nodes, then its links.
+     * @param out The output to write to.
+     * @throws IOException If the output can not be written to.
+     */
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(numNodes);
+        out.writeInt(numLayers);
+        out.writeInt(fitness);
+        out.writeInt(nodeGenes.getNumInputs());
+        out.writeInt(nodeGenes.getNumHidden());
+        out.writeInt(nodeGenes.getNumOutputs());
+        nodeGenes.write(out);
+        linkGenes.write(out);
+    }
+
+    /**
+     * Returns the link genes of this network.
+     * @return The link genes of this network.
+     */
+    LinkGenes getLinkGenes() {
+        return linkGenes;
+    }
+
+    /**
+     * Returns the node genes of this network.
+     * @return The node genes of this network.
+     */
+    NodeGenes getNodeGenes() {
+        return nodeGenes;
+    }
+
+    /**
+     * Makes the views of every node from the node genes if they have not been made yet, indexes
+     * them by ID and orders them by layer.
+     */
+    private void viewNodes() {
+        if(nodesById != null) {
+            return;
+        }
+        nodesById = new ArrayList<>();
+        biasNode = new Node(this, -1);
+        indexNode(biasNode);
+        inputNodes = new NEATNodeIF[nodeGenes.getNumInputs()];
+        for(int i = 0; i < inputNodes.length; i++) {
+            inputNodes[i] = new Node(this, nodeGenes.getInputID(i));
+            indexNode(inputNodes[i]);
+        }
+        hiddenNodes = new ArrayList<>(nodeGenes.getNumHidden());
+        for(int i = 0; i < nodeGenes.getNumHidden(); i++) {
+            hiddenNodes.add(new Node(this, nodeGenes.getHiddenID(i)));
+            indexNode(hiddenNodes.get(i));
+        }
+        outputNodes = new NEATNodeIF[nodeGenes.getNumOutputs()];
+        for(int i = 0; i < outputNodes.length; i++) {
+            outputNodes[i] = new Node(this, nodeGenes.getOutputID(i));
+            indexNode(outputNodes[i]);
+        }
+        nodesByLayer = orderNodesByLayer(this);
     }
 
     /**
@@ -125,36 +272,94 @@ public class Network extends ReusedCode implements NEATNetworkIF {
     }
 
     /**
-     * Returns the list of links that this network holds.
+     * Returns the list of links that this network holds. The list is a view of the link genes of
+     * this network, so links are added through insertLink instead.
      * @return The list of links that this network holds.
      */
     public List<LinkIF> getLinks() {
         return links;
     }
 
+    /**
+     * Adds a link gene with the supplied innovation number between two nodes of this network
+     * that are not connected yet.
+     * @param innovationNumber The innovation number of the link.
+     * @param input The input node to connect from.
+     * @param output The output node to connect to.
+     * @param weight The weight that should be given to the link.
+     */
+    @Override
+    public void insertLink(int innovationNumber, NEATNodeIF input, NEATNodeIF output,
+                           double weight) {
+        linkGenes.add(innovationNumber, input.getId(), output.getId(), weight);
+    }
+
     /**
      * Mutates this network, either with only link weights possibly being modified or by adding
      * additional structure via new links or new nodes.
      */
     public void mutate() {
+        mutateWeights();
+        mutateStructure();
+    }
+
+    /** Possibly mutates the weight of each link. Each link is either mutated or not. */
+    public void mutateWeights() {
+        compiled = null;
+
         // Mutation for link weight. Each link is either mutated or not each generation.
-        for(LinkIF link : links) {
-            if(Math.random() < Coefficients.LINK_WEIGHT_MUT.getValue()) {
-                mutateWeight(link.getWeight());
+        for(int i = 0; i < linkGenes.size(); i++) {
+            if(RandomSource.current().nextDouble() < Coefficients.LINK_WEIGHT_MUT.getValue()) {
+                linkGenes.setWeight(i, mutateWeight(linkGenes.getWeight(i)));
             }
         }
+    }
+
+    /**
+     * Possibly adds a new link between two unlinked nodes and a new node where a link used to
+     * be. Both hand out innovation numbers.
+     */
+    public void mutateStructure() {
+        compiled = null;
 
         // Mutation for adding a link between two random, unlinked nodes.
-        if(Math.random() < Coefficients.ADD_LINK_MUT.getValue()) {
+        if(RandomSource.current().nextDouble() < Coefficients.ADD_LINK_MUT.getValue()) {
             addLinkMutation(this);
         }
 
         // Mutation for adding a new node where a link previously was.
-        if(Math.random() < Coefficients.ADD_NODE_MUT.getValue()) {
+        if(RandomSource.current().nextDouble() < Coefficients.ADD_NODE_MUT.getValue()) {
             addNodeMutation();
         }
     }
 
+    /**
+     * Activates every node in the network in order from input -> bias -> hidden -> output,
+     * compiling the network first if it has changed since it was last compiled.
+     * @param inputValues The values to be set as our input layer nodes' output values.
+     * @return The output values in our output nodes after every node has been activated.
+     */
+    public double[] feedForward(float[] inputValues) {
+        double[] outputs = new double[nodeGenes.getNumOutputs()];
+        feedForward(inputValues, outputs);
+        return outputs;
+    }
+
+    /**
+     * Activates every node in the network in order from input -> bias -> hidden -> output and
+     * writes the values of the output nodes to the supplied array, compiling the network first if
+     * it has changed since it was last compiled.
+     * @param inputValues The values to be set as our input layer nodes' output values.
+     * @param outputValues The array to write the output values in our output nodes to.
+     */
+    public void feedForward(float[] inputValues, double[] outputValues) {
+        if(compiled == null || compiledChanges != linkGenes.getChanges()) {
+            compiledChanges = linkGenes.getChanges();
+            compiled = new CompiledNetwork(this);
+        }
+        compiled.feedForward(inputValues, outputValues);
+    }
+
     /**
      * Returns whether or not a link can be formed between two nodes. If the nodes are already
      * connected, it is a bad link and if both nodes are from the same layer, it is a bad link.
@@ -182,11 +387,11 @@ public class Network extends ReusedCode implements NEATNetworkIF {
      * reducing its ability to change the network's output).
      */
     private void addNodeMutation() {
-        Random random = new Random();
+        Random random = RandomSource.current();
         LinkIF link;
         do {
             link = links.get(random.nextInt(links.size()));
-        } while(link.getInputNodeID() == biasNode.getId());
+        } while(link.getInputNodeID() == getBiasNode().getId());
 
         addNode(link);
     }
@@ -197,18 +402,30 @@ public class Network extends ReusedCode implements NEATNetworkIF {
      * @return The node that corresponds to the ID number or null.
      */
     public NEATNodeIF getNode(int id) {
-        for(NEATNodeIF node : listNodesByLayer(this)) {
-            if(node.getId() == id) {
-                return node;
-            }
+        viewNodes();
+        int index = id + 1;
+        if(index < 0 || index >= nodesById.size()) {
+            return null;
         }
-        return null;
+        return nodesById.get(index);
     }
 
-    /** Get the innovation list */
+    /**
+     * Adds a node to the table of nodes by ID, growing the table if needed.
+     * @param node The node to add.
+     */
+    private void indexNode(NEATNodeIF node) {
+        int index = node.getId() + 1;
+        while(nodesById.size() <= index) {
+            nodesById.add(null);
+        }
+        nodesById.set(index, node);
+    }
+
+    /** Get the innovation registry */
     @Override
-    public Map<Integer, String> getInnovationList() {
-        return innovationList;
+    public InnovationRegistry getInnovationRegistry() {
+        return innovationRegistry;
     }
 
     /**
@@ -217,6 +434,7 @@ public class Network extends ReusedCode implements NEATNetworkIF {
      */
     @Override
     public NEATNodeIF[] getInputNodes() {
+        viewNodes();
         return inputNodes;
     }
 
@@ -226,6 +444,7 @@ public class Network extends ReusedCode implements NEATNetworkIF {
      */
     @Override
     public NEATNodeIF[] getOutputNodes() {
+        viewNodes();
         return outputNodes;
     }
 
@@ -235,9 +454,20 @@ public class Network extends ReusedCode implements NEATNetworkIF {
      */
     @Override
     public List<NEATNodeIF> getHiddenNodes() {
+        viewNodes();
         return hiddenNodes;
     }
 
+    /**
+     * Returns every node in order by their layers, from input -> bias -> hidden -> output.
+     * @return The list of nodes in order by their layers.
+     */
+    @Override
+    public List<NEATNodeIF> getNodesByLayer() {
+        viewNodes();
+        return Collections.unmodifiableList(nodesByLayer);
+    }
+
     /** Increment the number of layers */
     @Override
     public void incrementLayer() {
@@ -265,7 +495,8 @@ public class Network extends ReusedCode implements NEATNetworkIF {
      */
     @Override
     public NEATNodeIF getBiasNode() {
-        return (NEATNodeIF) biasNode;
+        viewNodes();
+        return biasNode;
     }
 
     /**
@@ -282,12 +513,16 @@ public class Network extends ReusedCode implements NEATNetworkIF {
      * @param link The location where the new node should be added.
      */
     public void addNode(LinkIF link) {
+        compiled = null;
         link.setEnabled(false);
         NEATNodeIF oldInput = getNode(link.getInputNodeID());
         int layer = addNodeHelper(this, link, oldInput);
-        NEATNodeIF toAdd = new neat.Node(getNumNodes(), layer);
+        nodeGenes.add(getNumNodes(), layer);
+        NEATNodeIF toAdd = new neat.Node(this, getNumNodes());
         toAdd.activate();
         getHiddenNodes().add(toAdd);
+        indexNode(toAdd);
+        insertNodeByLayer(nodesByLayer, toAdd);
 
         // Now add links to either side of the new node. The link going from the old input to the
         // new node gets a weight of 1 while the link going from the new node to the old output
@@ -4,11 +4,12 @@ import AIinterfaces.LinkIF;
 import AIinterfaces.NodeIF.NEATNodeIF;
 import AIinterfaces.ReusedCode;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
- * The node class contains all data needed by nodes to connect networks.
+ * The node class contains all data needed by nodes to connect networks. A node is only a view of
+ * its gene in the node genes of the network, which hold everything about it, so it is cheap to
+ * make and any change made through it is made to the gene itself.
  * @author Chance Simmons and Brandon Townsend
  * @version 22nd November, 2020
  * @additions Brooke Kiser and Tyler McVeigh
@@ -20,41 +21,17 @@ public class Node extends ReusedCode implements NEATNodeIF {
     /** The identification number for this node. */
     private final int id;
 
-    /** The sum of inputs before the node is activated. */
-    private double inputValue;
-
-    /** The value generated after activation. */
-    private double outputValue;
-
-    /** List of all outgoing links. */
-    private final List<LinkIF> outgoingLinks;
-
-    /** The layer this node resides in. */
-    private int layer;
+    /** The network this node belongs to, whose genes hold the node and its outgoing links. */
+    private final Network network;
 
     /**
-     * Constructor for a node. Takes an identification number and layer for this node.
+     * Constructor for a view of the node with the supplied identification number.
+     * @param network The network this node belongs to.
      * @param id The supplied identification number.
-     * @param layer The supplied layer this node should reside in.
      */
-    public Node(int id, int layer) {
+    public Node(Network network, int id) {
+        this.network = network;
         this.id = id;
-        this.inputValue = 0.0;
-        this.outputValue = 0.0;
-        this.outgoingLinks = new ArrayList<>();
-        this.layer = layer;
-    }
-
-    /**
-     * Copy constructor
-     * @param node The node to copy
-     */
-    public Node(NEATNodeIF node) {
-        this.id = node.getId();
-        this.inputValue = node.getInputValue();
-        this.outputValue = node.getOutputValue();
-        this.outgoingLinks = new ArrayList<>();
-        this.layer = node.getLayer();
     }
 
     /**
@@ -70,7 +47,7 @@ public class Node extends ReusedCode implements NEATNodeIF {
      * @return This nodes value before activation.
      */
     public double getInputValue() {
-        return inputValue;
+        return network.getNodeGenes().getInputValue(id);
     }
 
 
@@ -79,7 +56,7 @@ public class Node extends ReusedCode implements NEATNodeIF {
      * @param inputValue The supplied input value.
      */
     public void setInputValue(double inputValue) {
-        this.inputValue = inputValue;
+        network.getNodeGenes().setInputValue(id, inputValue);
     }
 
     /**
@@ -87,7 +64,7 @@ public class Node extends ReusedCode implements NEATNodeIF {
      * @return The output value of this node.
      */
     public double getOutputValue() {
-        return outputValue;
+        return network.getNodeGenes().getOutputValue(id);
     }
 
     /**
@@ -95,15 +72,16 @@ public class Node extends ReusedCode implements NEATNodeIF {
      * @param outputValue The supplied output value.
      */
     public void setOutputValue(double outputValue) {
-        this.outputValue = outputValue;
+        network.getNodeGenes().setOutputValue(id, outputValue);
     }
 
     /**
-     * Returns this nodes outgoing links.
+     * Returns this nodes outgoing links, as views of their genes made when asked for. Links are
+     * added through the network, not this list.
      * @return This nodes outgoing links.
      */
     public List<LinkIF> getOutgoingLinks() {
-        return outgoingLinks;
+        return network.getLinkGenes().outgoingLinks(id);
     }
 
     /**
@@ -111,12 +89,12 @@ public class Node extends ReusedCode implements NEATNodeIF {
      * @return The layer this node resides on.
      */
     public int getLayer() {
-        return layer;
+        return network.getNodeGenes().getLayer(id);
     }
 
     /** Increments this nodes layer by 1. */
     public void incrementLayer() {
-        this.layer++;
+        network.getNodeGenes().incrementLayer(id);
     }
 
     /**
@@ -125,11 +103,12 @@ public class Node extends ReusedCode implements NEATNodeIF {
      * nodes input.
      */
     public void activate() {
-        if(layer != INPUT_BIAS_LAYER) {
-            outputValue = activationFunctionS(inputValue);
+        if(getLayer() != INPUT_BIAS_LAYER) {
+            setOutputValue(activationFunctionS(getInputValue()));
         }
+        double outputValue = getOutputValue();
 
-        for(LinkIF link : outgoingLinks) {
+        for(LinkIF link : getOutgoingLinks()) {
             if(link.isEnabled()) {
                 NEATNodeIF outputNode = link.getOutputNode();
                 double oldInputValue = outputNode.getInputValue();
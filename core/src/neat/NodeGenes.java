@@ -0,0 +1,314 @@
+package neat;
+
+import AIinterfaces.ReusedCode;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The node genes of a network, kept as arrays of primitives indexed by node ID plus one, so the
+ * bias node is first: the layer of each node and its values before and after activation. The
+ * input nodes always have the IDs right after the bias node and the output nodes the IDs after
+ * them, while the IDs of the hidden nodes are kept in the order they were added. These arrays are
+ * the only place a node is stored, and the nodes of the network are flyweight views of them.
+ * Copies share the arrays with the genes they were copied from until either of them is changed,
+ * like the link genes do.
+ */
+public class NodeGenes {
+
+    /** The layer given to an ID that is not used by any node. */
+    private static final int NO_NODE = -1;
+
+    /** The number of input nodes. */
+    private final int numInputs;
+
+    /** The number of output nodes. */
+    private final int numOutputs;
+
+    /** The layer of each node, or NO_NODE for an ID that is not used. */
+    private int[] layers;
+
+    /** The sum of inputs of each node before it is activated. */
+    private double[] inputValues;
+
+    /** The value of each node after it is activated. */
+    private double[] outputValues;
+
+    /** The IDs of the hidden nodes, in the order they were added. */
+    private int[] hidden;
+
+    /** The number of hidden nodes. */
+    private int numHidden;
+
+    /** Whether the arrays may be shared with other genes, so they must be copied before a change. */
+    private boolean shared;
+
+    /**
+     * Creates the genes of a network without any nodes yet.
+     * @param numInputs The number of input nodes the network will have.
+     * @param numOutputs The number of output nodes the network will have.
+     */
+    public NodeGenes(int numInputs, int numOutputs) {
+        this.numInputs = numInputs;
+        this.numOutputs = numOutputs;
+        int length = numInputs + numOutputs + 1;
+        layers = new int[length];
+        Arrays.fill(layers, NO_NODE);
+        inputValues = new double[length];
+        outputValues = new double[length];
+        hidden = new int[0];
+        numHidden = 0;
+    }
+
+    /**
+     * Copies the genes of another network, sharing their arrays until either is changed. The
+     * other genes must not be changed while they are being copied.
+     * @param other The genes to copy.
+     */
+    public NodeGenes(NodeGenes other) {
+        numInputs = other.numInputs;
+        numOutputs = other.numOutputs;
+        layers = other.layers;
+        inputValues = other.inputValues;
+        outputValues = other.outputValues;
+        hidden = other.hidden;
+        numHidden = other.numHidden;
+        shared = true;
+        other.shared = true;
+    }
+
+    /**
+     * Returns the number of input nodes.
+     * @return The number of input nodes.
+     */
+    public int getNumInputs() {
+        return numInputs;
+    }
+
+    /**
+     * Returns the number of output nodes.
+     * @return The number of output nodes.
+     */
+    public int getNumOutputs() {
+        return numOutputs;
+    }
+
+    /**
+     * Returns the number of hidden nodes.
+     * @return The number of hidden nodes.
+     */
+    public int getNumHidden() {
+        return numHidden;
+    }
+
+    /**
+     * Returns the ID of the input node at the supplied index.
+     * @param index The index of the input node.
+     * @return The ID of the input node.
+     */
+    public int getInputID(int index) {
+        return index;
+    }
+
+    /**
+     * Returns the ID of the output node at the supplied index.
+     * @param index The index of the output node.
+     * @return The ID of the output node.
+     */
+    public int getOutputID(int index) {
+        return numInputs + index;
+    }
+
+    /**
+     * Returns the ID of the hidden node at the supplied index, in the order they were added.
+     * @param index The index of the hidden node.
+     * @return The ID of the hidden node.
+     */
+    public int getHiddenID(int index) {
+        return hidden[index];
+    }
+
+    /**
+     * Returns whether there is a node with the supplied ID.
+     * @param id The ID of the node.
+     * @return True if there is such a node, false otherwise.
+     */
+    public boolean contains(int id) {
+        int index = id + 1;
+        return index >= 0 && index < layers.length && layers[index] != NO_NODE;
+    }
+
+    /**
+     * Returns the layer of the node with the supplied ID.
+     * @param id The ID of the node.
+     * @return The layer of the node.
+     */
+    public int getLayer(int id) {
+        return layers[id + 1];
+    }
+
+    /**
+     * Moves the node with the supplied ID one layer further along.
+     * @param id The ID of the node.
+     */
+    public void incrementLayer(int id) {
+        unshare();
+        layers[id + 1]++;
+    }
+
+    /**
+     * Returns the value of the node with the supplied ID before it is activated.
+     * @param id The ID of the node.
+     * @return The value before activation.
+     */
+    public double getInputValue(int id) {
+        return inputValues[id + 1];
+    }
+
+    /**
+     * Sets the value of the node with the supplied ID before it is activated.
+     * @param id The ID of the node.
+     * @param value The value before activation.
+     */
+    public void setInputValue(int id, double value) {
+        unshare();
+        inputValues[id + 1] = value;
+    }
+
+    /**
+     * Returns the value of the node with the supplied ID after it is activated.
+     * @param id The ID of the node.
+     * @return The value after activation.
+     */
+    public double getOutputValue(int id) {
+        return outputValues[id + 1];
+    }
+
+    /**
+     * Sets the value of the node with the supplied ID after it is activated.
+     * @param id The ID of the node.
+     * @param value The value after activation.
+     */
+    public void setOutputValue(int id, double value) {
+        unshare();
+        outputValues[id + 1] = value;
+    }
+
+    /**
+     * Adds a node with both of its values at zero. A node with an ID past the output nodes is a
+     * hidden node and is added after the other hidden nodes.
+     * @param id The ID of the node, which must not be used yet.
+     * @param layer The layer of the node.
+     */
+    public void add(int id, int layer) {
+        int index = id + 1;
+        if(index >= layers.length) {
+            copyArrays(Math.max(index + 1, layers.length * 2));
+        } else {
+            unshare();
+        }
+        layers[index] = layer;
+        inputValues[index] = 0;
+        outputValues[index] = 0;
+        if(id >= numInputs + numOutputs) {
+            if(numHidden == hidden.length) {
+                hidden = Arrays.copyOf(hidden, Math.max(4, hidden.length * 2));
+            }
+            hidden[numHidden++] = id;
+        }
+    }
+
+    /**
+     * Writes the nodes to a checkpoint from the bias node through the input and hidden nodes to
+     * the output nodes: the ID, layer and both values of each node.
+     * @param out The output to write to.
+     * @throws IOException If the output can not be written to.
+     */
+    public void write(DataOutput out) throws IOException {
+        writeNode(-1, out);
+        for(int i = 0; i < numInputs; i++) {
+            writeNode(getInputID(i), out);
+        }
+        for(int i = 0; i < numHidden; i++) {
+            writeNode(hidden[i], out);
+        }
+        for(int i = 0; i < numOutputs; i++) {
+            writeNode(getOutputID(i), out);
+        }
+    }
+
+    /**
+     * Reads the nodes written by write into these genes, which must not have any nodes yet.
+     * @param in The input to read from.
+     * @param numHidden The number of hidden nodes to read.
+     * @param numNodes The number of nodes the network has, which no ID may be above.
+     * @throws IOException If the input can not be read or a node has an ID it can not have.
+     */
+    public void read(DataInput in, int numHidden, int numNodes) throws IOException {
+        readNode(in, -1, -1);
+        for(int i = 0; i < numInputs; i++) {
+            readNode(in, getInputID(i), getInputID(i));
+        }
+        for(int i = 0; i < numHidden; i++) {
+            readNode(in, numInputs + numOutputs, numNodes);
+        }
+        for(int i = 0; i < numOutputs; i++) {
+            readNode(in, getOutputID(i), getOutputID(i));
+        }
+    }
+
+    /**
+     * Writes a single node to a checkpoint.
+     * @param id The ID of the node.
+     * @param out The output to write to.
+     * @throws IOException If the output can not be written to.
+     */
+    private void writeNode(int id, DataOutput out) throws IOException {
+        out.writeInt(id);
+        out.writeInt(layers[id + 1]);
+        out.writeDouble(inputValues[id + 1]);
+        out.writeDouble(outputValues[id + 1]);
+    }
+
+    /**
+     * Reads a single node from a checkpoint and adds it.
+     * @param in The input to read from.
+     * @param lowestID The lowest ID the node may have.
+     * @param highestID The highest ID the node may have.
+     * @throws IOException If the input can not be read or the node has an ID it can not have.
+     */
+    private void readNode(DataInput in, int lowestID, int highestID) throws IOException {
+        int id = in.readInt();
+        int layer = ReusedCode.readSize(in);
+        if(id < lowestID || id > highestID || contains(id)) {
+            throw new IOException("Checkpoint holds a node with ID " + id);
+        }
+        add(id, layer);
+        inputValues[id + 1] = in.readDouble();
+        outputValues[id + 1] = in.readDouble();
+    }
+
+    /** Copies the arrays if they may be shared with other genes, so they can be changed. */
+    private void unshare() {
+        if(shared) {
+            copyArrays(layers.length);
+        }
+    }
+
+    /**
+     * Replaces the arrays with copies that have room for the supplied number of node IDs. New
+     * room is left without nodes.
+     * @param length The number of node IDs to make room for.
+     */
+    private void copyArrays(int length) {
+        int oldLength = layers.length;
+        layers = Arrays.copyOf(layers, length);
+        Arrays.fill(layers, Math.min(oldLength, length), length, NO_NODE);
+        inputValues = Arrays.copyOf(inputValues, length);
+        outputValues = Arrays.copyOf(outputValues, length);
+        hidden = Arrays.copyOf(hidden, hidden.length);
+        shared = false;
+    }
+}
@@ -1,14 +1,25 @@
 package neat;
 
+import AIinterfaces.CompatibilityCache;
+import AIinterfaces.InnovationRegistry;
+import AIinterfaces.MetricsSink;
 import AIinterfaces.NetworkIF.NEATNetworkIF;
+import AIinterfaces.NetworkIF.NetworkIF;
+import AIinterfaces.OrganismTable;
 import AIinterfaces.PopulationIF.NEATPopulationIF;
-import AIinterfaces.PopulationIF.PopulationIF;
+import AIinterfaces.PopulationIF.NetworkPopulationIF;
+import AIinterfaces.RandomSource;
 import AIinterfaces.ReusedCode;
+import AIinterfaces.Speciation;
 import AIinterfaces.SpeciesIF.NEATSpeciesIF;
+import AIinterfaces.SpeciesMembers;
+import AIinterfaces.Workers;
+import com.badlogic.gdx.graphics.Color;
 import com.mygdx.kittener.game.Agent;
 import com.mygdx.kittener.game.MainGame;
 
-import java.io.FileWriter;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.util.*;
 
@@ -19,19 +30,41 @@ import java.util.*;
  * @version 22nd November, 2020
  * @additions Brooke Kiser and Tyler McVeigh
  */
-public class Population extends ReusedCode implements PopulationIF, NEATPopulationIF {
+public class Population extends ReusedCode implements NetworkPopulationIF, NEATPopulationIF {
     /** Keeps track of the generation of organisms we're at. */
     private int generation;
 
     /** List of every species in the game. */
     private final List<NEATSpeciesIF> species;
 
-    /** Mapping of each game agent to their network. */
-    private final Map<Integer, NEATNetworkIF> organisms;
+    /** The network of each game agent, at the agent's ID number. */
+    private final OrganismTable<NEATNetworkIF> organisms;
 
     /** Identification number of the best agent. */
     private int bestAgentID;
 
+    /** The species each organism was found to be compatible with since the species last changed. */
+    private final CompatibilityCache compatibilityCache;
+
+    /** The random numbers this population is made and evolved with. */
+    private final Random random;
+
+    /**
+     * The innovation numbers handed out to the links of the networks of this population. Every
+     * population numbers its own links, so populations evolving side by side do not change each
+     * other's numbers.
+     */
+    private final InnovationRegistry innovationRegistry;
+
+    /** Works out the species of every organism. */
+    private final Speciation<NEATNetworkIF> speciation;
+
+    /** The colors used by our species. */
+    private final List<Color> takenColors;
+
+    /** The log the statistics of every generation are written to, or null. */
+    private MetricsSink stats;
+
     /** The type of AI. */
     private boolean type = true;
 
@@ -42,14 +75,103 @@ public class Population extends ReusedCode implements PopulationIF, NEATPopulati
      * @param output The number of outputs we're expecting.
      */
     public Population(List<Agent> agents, int input, int output) {
+        this(agents, input, output, new Random().nextLong());
+    }
+
+    /**
+     * Constructors our population. Maps every agent to a newly formed network. Two populations
+     * made from the same seed make and evolve the same networks.
+     * @param agents The list of agents to connect via mapping.
+     * @param input The number of inputs we're expecting.
+     * @param output The number of outputs we're expecting.
+     * @param seed The seed of the random numbers to make and evolve the networks with.
+     */
+    public Population(List<Agent> agents, int input, int output, long seed) {
         generation  = 0;
         species     = new ArrayList<>();
-        organisms   = new HashMap<>();
+        organisms   = new OrganismTable<>(agents.size());
         bestAgentID = 0;
+        compatibilityCache = new CompatibilityCache(agents.size());
+        random      = new Random(seed);
+        innovationRegistry = new InnovationRegistry();
+        speciation  = new Speciation<>(network -> network);
+        takenColors = new ArrayList<>();
+        stats       = MainGame.STATS;
+
+        Random previous = RandomSource.use(random);
+        try {
+            for(Agent agent : agents) {
+                organisms.set(agent.getId(), new Network(input, output, innovationRegistry));
+            }
+        } finally {
+            RandomSource.use(previous);
+        }
+    }
+
+    /**
+     * Reads a population back from a checkpoint written by writeCheckpoint. The population goes
+     * on evolving exactly as the population that was written would have.
+     * @param agents The list of agents to connect via mapping.
+     * @param in The input to read from.
+     * @throws IOException If the input can not be read or does not hold a population for the
+     * supplied agents.
+     */
+    public Population(List<Agent> agents, DataInput in) throws IOException {
+        generation  = in.readInt();
+        bestAgentID = in.readInt();
+        random      = RandomSource.read(in);
+        innovationRegistry = new InnovationRegistry();
+        organisms   = new OrganismTable<>(agents.size());
+        species     = new ArrayList<>();
+        compatibilityCache = new CompatibilityCache(agents.size());
+        speciation  = new Speciation<>(network -> network);
+        takenColors = new ArrayList<>();
+        stats       = MainGame.STATS;
+
+        int numTaken = readSize(in);
+        for(int i = 0; i < numTaken; i++) {
+            takenColors.add(readColor(in));
+        }
+        int numOrganisms = readSize(in);
+        if(numOrganisms != agents.size() || numOrganisms == 0) {
+            throw new IOException("Checkpoint holds " + numOrganisms + " organisms for "
+                    + agents.size() + " agents");
+        }
+        for(int id = 0; id < numOrganisms; id++) {
+            organisms.set(id, new Network(in, innovationRegistry));
+        }
+        int numSpecies = readSize(in);
+        for(int i = 0; i < numSpecies; i++) {
+            species.add(new Species(in, innovationRegistry));
+        }
+        innovationRegistry.read(in);
 
-        for(Agent agent : agents) {
-            organisms.put(agent.getId(), new Network(input, output));
+        Random previous = RandomSource.use(random);
+        try {
+            cacheCompatibility();
+        } finally {
+            RandomSource.use(previous);
+        }
+    }
+
+    @Override
+    public void writeCheckpoint(DataOutput out) throws IOException {
+        out.writeInt(generation);
+        out.writeInt(bestAgentID);
+        RandomSource.write(random, out);
+        out.writeInt(takenColors.size());
+        for(Color color : takenColors) {
+            writeColor(color, out);
+        }
+        out.writeInt(organisms.size());
+        for(int id = 0; id < organisms.size(); id++) {
+            organisms.get(id).write(out);
         }
+        out.writeInt(species.size());
+        for(NEATSpeciesIF s : species) {
+            s.write(out);
+        }
+        innovationRegistry.write(out);
     }
 
     /**
@@ -72,7 +194,23 @@ public class Population extends ReusedCode implements PopulationIF, NEATPopulati
      * @return The network output by the supplied agent ID number.
      */
     public double[] getNetworkOutput(int id, float[] agentVision) {
-        return feedForward(organisms.get(id), agentVision);
+        return organisms.get(id).feedForward(agentVision);
+    }
+
+    /**
+     * Writes the network output given the supplied agent ID number and it's vision into the
+     * supplied array.
+     * @param id The agent ID number to search for in our mapping.
+     * @param agentVision The array of what the agent can see
+     * @param output The array to write the network output to.
+     */
+    public void getNetworkOutput(int id, float[] agentVision, double[] output) {
+        organisms.get(id).feedForward(agentVision, output);
+    }
+
+    @Override
+    public NetworkIF getNetwork(int id) {
+        return organisms.get(id);
     }
 
     /**
@@ -90,21 +228,24 @@ public class Population extends ReusedCode implements PopulationIF, NEATPopulati
      * @param agent The agent to modify the color of.
      */
     public void assignColor(Agent agent) {
-        for(NEATSpeciesIF s : species) {
-            if(isCompatibleTo(organisms.get(agent.getId()), s.getCompatibilityNetwork())) {
-                agent.setColor(s.getColor());
-                break;
-            }
+        NEATNetworkIF agentNetwork = organisms.get(agent.getId());
+        int speciesIndex = compatibilityCache.get(agent.getId(), agentNetwork);
+        if(speciesIndex == CompatibilityCache.UNKNOWN) {
+            speciesIndex = findSpecies(agentNetwork, 0, species.size());
+        }
+        if(speciesIndex != CompatibilityCache.NONE) {
+            agent.setColor(species.get(speciesIndex).getColor());
         }
     }
 
     /** Sets the best agent of this generation. */
     private void setBestAgentID() {
+        bestAgentID = 0;
         int bestFitness = organisms.get(0).getFitness();
-        for(Map.Entry<Integer, NEATNetworkIF> organism : organisms.entrySet()) {
-            if(organism.getValue().getFitness() > bestFitness) {
-                bestFitness = organism.getValue().getFitness();
-                bestAgentID = organism.getKey();
+        for(int id = 0; id < organisms.size(); id++) {
+            if(organisms.get(id).getFitness() > bestFitness) {
+                bestFitness = organisms.get(id).getFitness();
+                bestAgentID = id;
             }
         }
     }
@@ -115,44 +256,122 @@ public class Population extends ReusedCode implements PopulationIF, NEATPopulati
      * reproduces.
      */
     public void naturalSelection() {
+        Random previous = RandomSource.use(random);
+        try {
+            selectAndReproduce();
+        } finally {
+            RandomSource.use(previous);
+        }
+    }
+
+    /**
+     * Performs natural selection, drawing from the current stream of the calling thread, which
+     * naturalSelection points at the stream of this population.
+     */
+    private void selectAndReproduce() {
         // Set up for producing babies.
         speciate();
-        System.err.println("speciate done");
-        cullSpecies();
-        System.err.println("cull done");
         setBestAgentID();
-        System.err.println("best agent done");
+        cullSpecies();
         removeStaleSpecies(this);
-        System.err.println("remove stale done");
         removeBadSpecies();
-        System.err.println("remove bad done");
 
         double avgSum = getAvgFitnessSum();
         List<NEATNetworkIF> babies = new ArrayList<>();
+        List<NEATSpeciesIF> parents = new ArrayList<>();
 
         for(NEATSpeciesIF s : species) {
             // Directly clone the best network of the species.
-            babies.add((NEATNetworkIF) new Network(s.getOrganisms().get(s.getBestOrgID())));
+            SpeciesMembers<NEATNetworkIF> members = s.getOrganisms();
+            babies.add(new Network(members.get(members.indexOf(s.getBestOrgID()))));
+            parents.add(null);
 
-            // Find the correct number of babies and reproduce them.
+            // Find the correct number of babies and save a place for each of them.
             int numBabies = (int) Math.floor(s.getAverageFitness() / avgSum * organisms.size()) - 1;
 
             for(int i = 0; i < numBabies; i++) {
-                babies.add((NEATNetworkIF) s.reproduce());
+                babies.add(null);
+                parents.add(s);
             }
         }
 
         // If we don't have enough babies, produce them from random species.
         while(babies.size() < organisms.size()) {
-            babies.add((NEATNetworkIF) species.get(new Random().nextInt(species.size())).reproduce());
+            babies.add(null);
+            parents.add(species.get(random.nextInt(species.size())));
         }
 
+        // Breed every baby that gets an agent in parallel. The parents are only read while their
+        // babies are made, so each baby just has to be written to its own place. New structure
+        // hands out innovation numbers, so it is added afterwards one baby at a time in order of
+        // agent, each baby still drawing from its own stream, to keep the numbers the same
+        // however many threads there are.
+        int[] places = placesOfBabies(parents);
+        Random[] streams = Workers.fork(places.length);
+        Workers.forEach(streams, i -> babies.set(places[i], parents.get(places[i]).breed()));
+        Workers.forEachInOrder(streams, i -> babies.get(places[i]).mutateStructure());
+
         // Set up our agent's with their new networks.
-        int i = 0;
-        for(Map.Entry<Integer, NEATNetworkIF> organism : organisms.entrySet()) {
-            organism.setValue((NEATNetworkIF) babies.get(i));
-            i++;
+        for(int id = 0; id < organisms.size(); id++) {
+            organisms.set(id, babies.get(id));
+        }
+
+        // Pick the networks the next generation will be tested against now, so the species of
+        // every new organism can be worked out once for both its color and the next speciation.
+        for(NEATSpeciesIF s : species) {
+            s.setCompatibilityNetwork();
+        }
+        cacheCompatibility();
+    }
+
+    /**
+     * Returns the places in the list of babies that still have to be reproduced by a species and
+     * will be given to an agent.
+     * @param parents The species that reproduces each baby, or null for a carried over network.
+     * @return The places of the babies to reproduce.
+     */
+    private int[] placesOfBabies(List<NEATSpeciesIF> parents) {
+        int count = Math.min(parents.size(), organisms.size());
+        int[] places = new int[count];
+        int numPlaces = 0;
+        for(int i = 0; i < count; i++) {
+            if(parents.get(i) != null) {
+                places[numPlaces++] = i;
+            }
         }
+        return Arrays.copyOf(places, numPlaces);
+    }
+
+    /**
+     * Finds the first compatible species for every organism and stores it in the compatibility
+     * cache. The organisms are compared in parallel.
+     */
+    private void cacheCompatibility() {
+        compatibilityCache.clear();
+        int[] speciesIndices = new int[organisms.size()];
+        Arrays.fill(speciesIndices, CompatibilityCache.UNKNOWN);
+        speciation.matchRepresentatives(organisms, compatibilityNetworks(), speciesIndices);
+        for(int id = 0; id < organisms.size(); id++) {
+            compatibilityCache.put(id, organisms.get(id), speciesIndices[id]);
+        }
+    }
+
+    /**
+     * Returns the index of the first species in a range of our species list that the supplied
+     * network is compatible with.
+     * @param network The network to find a species for.
+     * @param from The index of the first species to check.
+     * @param to The index after the last species to check.
+     * @return The index of the first compatible species, or CompatibilityCache.NONE if there is
+     * none.
+     */
+    private int findSpecies(NEATNetworkIF network, int from, int to) {
+        for(int i = from; i < to; i++) {
+            if(isCompatibleTo(network, species.get(i).getCompatibilityNetwork())) {
+                return i;
+            }
+        }
+        return CompatibilityCache.NONE;
     }
 
     /**
@@ -164,6 +383,15 @@ public class Population extends ReusedCode implements PopulationIF, NEATPopulati
         return species;
     }
 
+    /**
+     * Gets the colors used by the species
+     * @return The colors used by the species
+     */
+    @Override
+    public List<Color> getTakenColors() {
+        return takenColors;
+    }
+
     /**
      * The best agent of the population
      * @return The ID of the best agent
@@ -173,34 +401,72 @@ public class Population extends ReusedCode implements PopulationIF, NEATPopulati
         return bestAgentID;
     }
 
+    @Override
+    public void setStatistics(MetricsSink stats) {
+        this.stats = stats;
+    }
+
+    @Override
+    public List<NetworkIF> getFittestNetworks(int count) {
+        int[] ranking = organisms.rankByFitness(NEATNetworkIF::getFitness);
+        List<NetworkIF> fittest = new ArrayList<>();
+        for(int i = 0; i < Math.min(count, ranking.length); i++) {
+            fittest.add(new Network(organisms.get(ranking[i])));
+        }
+        return fittest;
+    }
+
+    @Override
+    public void replaceWeakest(List<NetworkIF> networks) {
+        int[] ranking = organisms.rankByFitness(NEATNetworkIF::getFitness);
+        int count = Math.min(networks.size(), ranking.length - 1);
+        for(int i = 0; i < count; i++) {
+            organisms.set(ranking[ranking.length - 1 - i],
+                    new Network((NEATNetworkIF) networks.get(i), innovationRegistry));
+        }
+    }
+
+    /**
+     * Returns the compatibility networks of our species, in order.
+     * @return The compatibility networks of our species.
+     */
+    private List<NEATNetworkIF> compatibilityNetworks() {
+        List<NEATNetworkIF> networks = new ArrayList<>(species.size());
+        for(NEATSpeciesIF s : species) {
+            networks.add(s.getCompatibilityNetwork());
+        }
+        return networks;
+    }
+
     /** Separates this populations list of organisms into separate species. */
     private void speciate() {
-        // First, set up each existing species compatibility network and clear it of all
-        // organisms from the last generation.
+        // First, clear each existing species of all organisms from the last generation. Their
+        // compatibility networks were already set up at the end of the last natural selection.
         for(NEATSpeciesIF s : species) {
-            s.setCompatibilityNetwork();
             s.getOrganisms().clear();
             s.setAverageFitness();
         }
 
         // For each organism in the population, see if it is compatible with any existing species.
-        for(Map.Entry<Integer, NEATNetworkIF> organism : organisms.entrySet()) {
-            int agentID = organism.getKey();
-            NEATNetworkIF agentNetwork = organism.getValue();
-            boolean speciesFound = false;
-            for(int i = 0; !speciesFound && i < species.size(); i++) {
-                NEATSpeciesIF s = species.get(i);
-                if(isCompatibleTo(agentNetwork, s.getCompatibilityNetwork())) {
-                    s.addOrganism(agentID, agentNetwork);
-                    speciesFound = true;
-                }
-            }
-
-            // If it is not compatible, create a new species.
-            if(!speciesFound) {
-                species.add(new Species(agentID, agentNetwork));
+        // Most organisms were already checked when they were made, so only the rest are compared
+        // now. The organisms that fit none of them are then split into new species.
+        int[] speciesIndices = new int[organisms.size()];
+        for(int agentID = 0; agentID < organisms.size(); agentID++) {
+            speciesIndices[agentID] = compatibilityCache.get(agentID, organisms.get(agentID));
+        }
+        speciation.matchRepresentatives(organisms, compatibilityNetworks(), speciesIndices);
+        speciation.foundSpecies(organisms, species.size(), speciesIndices);
+
+        // The founder of a new species always comes before the rest of its organisms.
+        for(int agentID = 0; agentID < organisms.size(); agentID++) {
+            NEATNetworkIF agentNetwork = organisms.get(agentID);
+            if(speciesIndices[agentID] == species.size()) {
+                species.add(new Species(agentID, agentNetwork, takenColors));
+            } else {
+                species.get(speciesIndices[agentID]).addOrganism(agentID, agentNetwork);
             }
         }
+        compatibilityCache.clear();
         statisticsTrack();
         //Set the average fitness for a species
         for (NEATSpeciesIF s : species) {
@@ -226,9 +492,9 @@ public class Population extends ReusedCode implements PopulationIF, NEATPopulati
         double avgSum = getAvgFitnessSum();
 
         for(int i = 0; i < species.size(); i++) {
-            if(!species.get(i).getOrganisms().containsKey(bestAgentID)) {
+            if(!species.get(i).getOrganisms().contains(bestAgentID)) {
                 if(species.get(i).getAverageFitness() / avgSum * organisms.size() < 1) {
-                    Species.takenColors.remove(species.get(i).getColor());
+                    takenColors.remove(species.get(i).getColor());
                     species.remove(i);
                     i--;
                 }
@@ -259,9 +525,11 @@ public class Population extends ReusedCode implements PopulationIF, NEATPopulati
         List<NEATNetworkIF> organisms = new ArrayList<>();
         //Adds all the CPPNs for a species to organisms
         for(NEATSpeciesIF s: species){
-            organisms.addAll(s.getOrganisms().values());
+            SpeciesMembers<NEATNetworkIF> members = s.getOrganisms();
+            for(int i = 0; i < members.size(); i++) {
+                organisms.add(members.get(i));
+            }
         }
-        System.err.println(organisms.size());
 
         int max = 0;
         //Find the max fitness of all the CPPNs for this generation
@@ -280,12 +548,8 @@ public class Population extends ReusedCode implements PopulationIF, NEATPopulati
         average = average / organisms.size();
 
         //Write to the log file
-        try {
-            FileWriter statWriter = new FileWriter(MainGame.STAT_LOG, true);
-            statWriter.write("\n" + generation + "," + average + "," + max);
-            statWriter.close();
-        } catch (IOException e) {
-            System.err.println("ERROR: Unable to track statistics for generation " + generation);
+        if(stats != null) {
+            stats.write("\n" + generation + "," + average + "," + max);
         }
 
     }
@@ -1,12 +1,17 @@
 package neat;
 
+import AIinterfaces.InnovationRegistry;
 import AIinterfaces.NetworkIF.NEATNetworkIF;
+import AIinterfaces.RandomSource;
 import AIinterfaces.ReusedCode;
 import AIinterfaces.SpeciesIF.NEATSpeciesIF;
+import AIinterfaces.SpeciesMembers;
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.Colors;
 import com.badlogic.gdx.utils.Array;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -19,17 +24,14 @@ import java.util.*;
  */
 public class Species extends ReusedCode implements NEATSpeciesIF {
 
-    /** Static list of colors that are already being used by species. */
-    public static List<Color> takenColors = new ArrayList<>();
-
     /**
      * The network other networks will be tested against to see if they are compatible with this
      * species.
      */
     private NEATNetworkIF compatibilityNetwork;
 
-    /** A mapping of agent IDs to their networks. */
-    private Map<Integer, NEATNetworkIF> organisms;
+    /** The agent IDs of the organisms in this species and their networks. */
+    private final SpeciesMembers<NEATNetworkIF> organisms;
 
     /** The ID number of the best organism in this species this generation. */
     private int bestOrgID;
@@ -50,24 +52,58 @@ public class Species extends ReusedCode implements NEATSpeciesIF {
      * Constructor for an organism's species.
      * @param agentID The ID number of the first agent to be assigned to this species.
      * @param agentNetwork The network used by the first agent to be assigned to this species.
+     * @param takenColors The colors already used by the species of the population. The color of
+     *                    this species is added to them.
      */
-    public Species(int agentID, NEATNetworkIF agentNetwork) {
+    public Species(int agentID, NEATNetworkIF agentNetwork, List<Color> takenColors) {
         compatibilityNetwork = new Network(agentNetwork);
-        organisms = new HashMap<>();
-        organisms.put(agentID, compatibilityNetwork);
+        organisms = new SpeciesMembers<>();
+        organisms.add(agentID, compatibilityNetwork);
         bestOrgID = agentID;
         bestFitness = 0;
         averageFitness = 0.0;
         staleness = 0;
 
-        Array<Color> colors = Colors.getColors().values().toArray();
+        Array<Color> colors = listColors();
         do {
             // Randomly generate a color till we have a good one.
-            color = colors.get(new Random().nextInt(colors.size));
+            color = colors.get(RandomSource.current().nextInt(colors.size));
         } while(takenColors.contains(color) && color != Color.CLEAR);
         takenColors.add(color);
     }
 
+    /**
+     * Reads a species back from a checkpoint written by write, without any organisms.
+     * @param in The input to read from.
+     * @param innovationRegistry The registry of innovation numbers of the population.
+     * @throws IOException If the input can not be read or does not hold a species.
+     */
+    public Species(DataInput in, InnovationRegistry innovationRegistry) throws IOException {
+        compatibilityNetwork = new Network(in, innovationRegistry);
+        organisms = new SpeciesMembers<>();
+        bestOrgID = in.readInt();
+        bestFitness = in.readInt();
+        averageFitness = in.readDouble();
+        staleness = in.readInt();
+        color = readColor(in);
+    }
+
+    /**
+     * Writes this species to a checkpoint: its compatibility network, its best organism and
+     * fitness, its staleness and its color.
+     * @param out The output to write to.
+     * @throws IOException If the output can not be written to.
+     */
+    @Override
+    public void write(DataOutput out) throws IOException {
+        compatibilityNetwork.write(out);
+        out.writeInt(bestOrgID);
+        out.writeInt(bestFitness);
+        out.writeDouble(averageFitness);
+        out.writeInt(staleness);
+        writeColor(color, out);
+    }
+
     /**
      * Returns the color assigned to this species.
      * @return The color assigned to this species.
@@ -86,26 +122,25 @@ public class Species extends ReusedCode implements NEATSpeciesIF {
 
     /** Sets the compatibility network to a random organism that is in this species. */
     public void setCompatibilityNetwork() {
-        Object[] networks = organisms.values().toArray();
-        compatibilityNetwork =
-                new Network((NEATNetworkIF) networks[new Random().nextInt(networks.length)]);
+        compatibilityNetwork = new Network(
+                organisms.get(RandomSource.current().nextInt(organisms.size())));
     }
 
     /**
-     * Returns the mapping of agent IDs and their networks.
-     * @return The mapping of agent IDs and their networks.
+     * Returns the agent IDs of the organisms in this species and their networks.
+     * @return The agent IDs of the organisms and their networks.
      */
-    public Map<Integer, NEATNetworkIF> getOrganisms() {
+    public SpeciesMembers<NEATNetworkIF> getOrganisms() {
         return organisms;
     }
 
     /**
-     * Adds an organism to the mapping of organisms in this species.
+     * Adds an organism to the organisms in this species.
      * @param agentID The ID number of the agent.
      * @param agentNetwork The network the agent uses.
      */
     public void addOrganism(int agentID, NEATNetworkIF agentNetwork) {
-        organisms.put(agentID, agentNetwork );
+        organisms.add(agentID, agentNetwork);
     }
 
     /**
@@ -127,8 +162,8 @@ public class Species extends ReusedCode implements NEATSpeciesIF {
     /** Calculates the average fitness for this species and sets it. */
     public void setAverageFitness() {
         double fitnessSum = 0.0;
-        for(NEATNetworkIF network : organisms.values()) {
-            fitnessSum += network.getFitness();
+        for(int i = 0; i < organisms.size(); i++) {
+            fitnessSum += organisms.get(i).getFitness();
         }
         if(organisms.isEmpty()) {
             averageFitness = 0;
@@ -151,10 +186,10 @@ public class Species extends ReusedCode implements NEATSpeciesIF {
      */
     public void setStaleness() {
         int generationMaxFitness = -1;
-        for(Map.Entry<Integer, NEATNetworkIF> organism : organisms.entrySet()) {
-            if(organism.getValue().getFitness() > generationMaxFitness) {
-                generationMaxFitness = organism.getValue().getFitness();
-                bestOrgID = organism.getKey();
+        for(int i = 0; i < organisms.size(); i++) {
+            if(organisms.get(i).getFitness() > generationMaxFitness) {
+                generationMaxFitness = organisms.get(i).getFitness();
+                bestOrgID = organisms.getID(i);
             }
         }
         if(generationMaxFitness > bestFitness) {
@@ -167,32 +202,11 @@ public class Species extends ReusedCode implements NEATSpeciesIF {
 
     /**
      * Takes the top 50% of networks in this species and retains them. Culls the bottom 50% so
-     * that they will not pollute the gene pool.
+     * that they will not pollute the gene pool. A species always keeps at least its best network.
      */
     public void cull() {
-        Map<Integer, NEATNetworkIF> survivors = new HashMap<>();
-
-        for(Map.Entry<Integer, NEATNetworkIF> organism : organisms.entrySet()) {
-            int maxOrganism = organism.getKey();
-            int maxFitness = organism.getValue().getFitness();
-
-            for(Map.Entry<Integer, NEATNetworkIF> other : organisms.entrySet()) {
-                int otherOrganism = other.getKey();
-                int otherFitness = other.getValue().getFitness();
-
-                if(!survivors.containsKey(otherOrganism) && otherFitness > maxFitness) {
-                    maxOrganism = otherOrganism;
-                    maxFitness = otherFitness;
-                }
-            }
-            survivors.put(maxOrganism, new Network(organisms.get(maxOrganism)));
-            organisms.get(maxOrganism).setFitness(-1);
-
-            if(survivors.size() >= organisms.size() * Coefficients.CULL_THRESH.getValue()) {
-                break;
-            }
-        }
-        organisms = survivors;
+        int survivors = (int) Math.ceil(organisms.size() * Coefficients.CULL_THRESH.getValue());
+        organisms.retainFittest(Math.max(1, survivors), NEATNetworkIF::getFitness);
     }
 
     /**
@@ -200,34 +214,35 @@ public class Species extends ReusedCode implements NEATSpeciesIF {
      * too large. This should prevent any one species from taking over the entire population.
      */
     public void shareFitness() {
-        for(NEATNetworkIF network : organisms.values()) {
+        for(int i = 0; i < organisms.size(); i++) {
+            NEATNetworkIF network = organisms.get(i);
             network.setFitness(network.getFitness() / organisms.size());
         }
     }
 
     /**
      * Generates a new network either through crossover of two random parent networks or through
-     * a direct clone of a random network in the species. The new network is then mutated in the
-     * hopes that we find a favorable mutation.
+     * a direct clone of a random network in the species. The weights of the new network are then
+     * mutated in the hopes that we find a favorable mutation. Its structure is mutated by the
+     * population once every baby is bred.
      * @return The new network we have produced and mutated.
      */
-    public NEATNetworkIF reproduce() {
+    public NEATNetworkIF breed() {
         NEATNetworkIF baby;
-        if(Math.random() < Coefficients.CROSSOVER_THRESH.getValue()) {
-            Object[] networks = organisms.values().toArray();
-            NEATNetworkIF parent1 = (NEATNetworkIF) networks[new Random().nextInt(networks.length)];
-            NEATNetworkIF parent2 = (NEATNetworkIF) networks[new Random().nextInt(networks.length)];
+        Random random = RandomSource.current();
+        if(random.nextDouble() < Coefficients.CROSSOVER_THRESH.getValue()) {
+            NEATNetworkIF parent1 = organisms.get(random.nextInt(organisms.size()));
+            NEATNetworkIF parent2 = organisms.get(random.nextInt(organisms.size()));
             if(parent1.getFitness() < parent2.getFitness()) {
                 baby = (NEATNetworkIF) crossover(parent1, parent2);
             } else {
                 baby = (NEATNetworkIF) crossover(parent2, parent1);
             }
         } else {
-            Object[] networks = organisms.values().toArray();
-            baby = new Network((NEATNetworkIF) networks[new Random().nextInt(networks.length)]);
+            baby = new Network(organisms.get(random.nextInt(organisms.size())));
         }
 
-        baby.mutate();
+        baby.mutateWeights();
         return baby;
     }
 }
@@ -1,5 +1,7 @@
 package suna;
 
+import AIinterfaces.RandomSource;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
@@ -42,7 +44,7 @@ public class Network {
 
         for (NormalNeuron in : this.inputNeurons) {
             for (NormalNeuron out : this.outputNeurons) {
-                DataLink link = new DataLink(in, out, Math.random() * 2 - 1);
+                DataLink link = new DataLink(in, out, RandomSource.current().nextDouble() * 2 - 1);
                 this.connections.add(link);
             }
         }
@@ -64,7 +66,7 @@ public class Network {
     }
 
     public void mutate() {
-        double mutationChance = Math.random();
+        double mutationChance = RandomSource.current().nextDouble();
         double remainingChance = 1.0;
         remainingChance = remainingChance - Coefficients.MUTATION_ADD_NEURON.getValue();
         if (mutationChance > remainingChance) {
@@ -91,7 +93,7 @@ public class Network {
 
     private void removeConnection() {
         int linkSize = this.connections.size();
-        Random generator = new Random();
+        Random generator = RandomSource.current();
         int randomLink = generator.nextInt(linkSize);
         Link removedLink = this.connections.get(randomLink);
         this.connections.remove(randomLink);
@@ -105,7 +107,7 @@ public class Network {
         NormalNeuron start = null;
         Neuron end = null;
         while(badLink){
-            Random generator = new Random();
+            Random generator = RandomSource.current();
             start = (NormalNeuron) this.neuronsList.get(generator.nextInt(this.neuronCount) );
             end = this.neuronsList.get(generator.nextInt(this.neuronCount) );
 
@@ -123,14 +125,14 @@ public class Network {
             }
         }
 
-        DataLink newLink = new DataLink(start, end, Math.random() * 2 - 1);
+        DataLink newLink = new DataLink(start, end, RandomSource.current().nextDouble() * 2 - 1);
         this.connections.add(newLink);
 
     }
 
     private void removeNeuron() {
         Neuron removedNeuron = null;
-        Random generator = new Random();
+        Random generator = RandomSource.current();
         boolean validNeuron = false;
 
         while(!validNeuron){
@@ -166,7 +168,7 @@ public class Network {
     }
 
     private void addNeuron() {
-        Random generator = new Random();
+        Random generator = RandomSource.current();
         Link mutatedLink = this.connections.get( generator.nextInt( this.connections.size() ) );
         Neuron newNeuron = new NormalNeuron(this.neuronCount, mutatedLink);
         this.neuronsList.add(newNeuron);
@@ -215,13 +217,17 @@ public class Network {
     }
 
     public double[] feedForward(float[] agentVision) {
-        for(Neuron n : neuronsList){
-            n.activate();
-        }
         double output[] =  new double[this.outputNeurons.length];
+        feedForward(agentVision, output);
+        return output;
+    }
+
+    public void feedForward(float[] agentVision, double[] output) {
+        for(int i = 0; i < neuronsList.size(); i++){
+            neuronsList.get(i).activate();
+        }
         for(int i = 0; i < this.outputNeurons.length; i++){
             output[i] = this.outputNeurons[i].getOutputValue();
         }
-        return output;
     }
 }
\ No newline at end of file
@@ -1,14 +1,14 @@
 package suna;
 
+import AIinterfaces.MetricsSink;
 import AIinterfaces.PopulationIF.PopulationIF;
+import AIinterfaces.RandomSource;
+import AIinterfaces.ReusedCode;
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.Colors;
 import com.badlogic.gdx.utils.Array;
 import com.mygdx.kittener.game.Agent;
 import com.mygdx.kittener.game.MainGame;
 
-import java.io.FileWriter;
-import java.io.IOException;
 import java.util.*;
 
 /**
@@ -24,6 +24,11 @@ public class Population implements PopulationIF {
 
     private int bestOrganismID;
 
+    private final Random random;
+
+    /** The log the statistics of every generation are written to, or null. */
+    private MetricsSink stats;
+
     /**
      * Constructors our population. Maps every agent to a newly formed network.
      *
@@ -32,10 +37,27 @@ public class Population implements PopulationIF {
      * @param output The number of outputs we're expecting.
      */
     public Population(List<Agent> agents, int input, int output) {
+        this(agents, input, output, new Random().nextLong());
+    }
+
+    /**
+     * Constructors our population. Maps every agent to a newly formed network. Two populations made from the same seed
+     * make and evolve the same networks.
+     *
+     * @param agents The list of agents to connect via mapping.
+     * @param input  The number of inputs we're expecting.
+     * @param output The number of outputs we're expecting.
+     * @param seed   The seed of the random numbers to make and evolve the networks with.
+     */
+    public Population(List<Agent> agents, int input, int output, long seed) {
         generation = 0;
         speciesList = new ArrayList<>();
         organisms = new HashMap<>();
         bestOrganismID = 0;
+        random = new Random(seed);
+        stats = MainGame.STATS;
+
+        RandomSource.use(random);
 
         //Place each agent and corresponding Network agent in the organisms
         for (Agent agent : agents) {
@@ -72,6 +94,17 @@ public class Population implements PopulationIF {
         return organisms.get(id).feedForward(agentVision);
     }
 
+    /**
+     * Writes the network output given the supplied agent ID number and it's vision into the supplied array.
+     *
+     * @param id          The agent ID number to search for in our mapping.
+     * @param agentVision The array of what the agent can see
+     * @param output      The array to write the network output to.
+     */
+    public void getNetworkOutput(int id, float[] agentVision, double[] output) {
+        organisms.get(id).feedForward(agentVision, output);
+    }
+
     /**
      * Passes along the score of an agent to its network so that the species class can have access to its score.
      *
@@ -89,6 +122,7 @@ public class Population implements PopulationIF {
      * @param agent The agent to modify the color of.
      */
     public void assignColor(Agent agent) {
+        RandomSource.use(random);
 
         Network organism = organisms.get(agent.getId());
 
@@ -165,12 +199,11 @@ public class Population implements PopulationIF {
             if(closestMatch == null){
                 Species s = new Species(organism.getSpectralAnalysis(), null);
                 s.addMember(organism);
-                Array<Color> colors = Colors.getColors().values().toArray();
+                Array<Color> colors = ReusedCode.listColors();
                 Color color;
                 do {
                     // Randomly generate a color till we have a good one.
-                    color = colors.get(new Random().nextInt(colors.size));
-                    System.err.println("Color: " + color);
+                    color = colors.get(RandomSource.current().nextInt(colors.size));
                 } while (Species.takenColors.contains(color) || color == Color.CLEAR);
                 this.speciesList.add(s);
             }
@@ -180,6 +213,7 @@ public class Population implements PopulationIF {
     }
 
     public void naturalSelection(){
+        RandomSource.use(random);
 
         for(Species s : speciesList){
             s.setBestFitness();
@@ -200,6 +234,11 @@ public class Population implements PopulationIF {
         return this.bestOrganismID;
     }
 
+    @Override
+    public void setStatistics(MetricsSink stats) {
+        this.stats = stats;
+    }
+
     private void cull(){
 
         List<Species> newList = new ArrayList<>();
@@ -219,8 +258,7 @@ public class Population implements PopulationIF {
 
     private void reproduce(){
         while(this.organisms.values().size() < 30){
-            Random r = new Random();
-            int nextSpecies = r.nextInt(this.speciesList.size());
+            int nextSpecies = random.nextInt(this.speciesList.size());
             Species species = this.speciesList.get(nextSpecies);
             Network child = new Network( species.getBestNetwork() );
             child.mutate();
@@ -252,12 +290,8 @@ public class Population implements PopulationIF {
         average = average / organisms.size();
 
         //Write to the log file
-        try {
-            FileWriter statWriter = new FileWriter(MainGame.STAT_LOG, true);
-            statWriter.write("\n" + generation + "," + average + "," + max);
-            statWriter.close();
-        } catch (IOException e) {
-            System.err.println("ERROR: Unable to track statistics for generation " + generation);
+        if (stats != null) {
+            stats.write("\n" + generation + "," + average + "," + max);
         }
 
     }
@@ -0,0 +1,116 @@
+package com.mygdx.kittener.desktop;
+
+import AIinterfaces.AlgorithmName;
+import AIinterfaces.Workers;
+import com.mygdx.kittener.game.GameTextures;
+import com.mygdx.kittener.game.MainGame;
+import com.mygdx.kittener.game.Simulation;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures how many bytes a single step of the game allocates once it has warmed up. Natural
+ * selection and the first step of every generation, which builds the networks of the new
+ * organisms, are left out so only the steady state steps are counted. Runs on a single thread,
+ * as handing work to the worker threads allocates on its own.
+ * Usage: AllocationBenchmark [--algorithm NEAT|HyperNEAT] [--agents N] [--warmup N] [--ticks N]
+ *                            [--seed N]
+ */
+public class AllocationBenchmark {
+	/** The pixel height and height of a square block, representing a game tile. */
+	private static final int BLOCK_SIZE = 32;
+
+	/** The number of blocks our game will be wide. */
+	private static final int WIDTH = 16;
+
+	/** The number of blocks our game will be tall. */
+	private static final int HEIGHT = 12;
+
+	/** The game time that passes each step, matching one frame of the desktop launchers. */
+	private static final float TIMESTEP = 1 / 60f;
+
+	/** Reads the number of bytes allocated by a thread. */
+	private static final com.sun.management.ThreadMXBean THREADS =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	/**
+	 * Driver for the benchmark.
+	 * @param args Arguments for the benchmark (if any).
+	 */
+	public static void main (String[] args) {
+		AlgorithmName aiName = AlgorithmName.NEAT;
+		int agents = 30;
+		int warmup = 20000;
+		int ticks = 10000;
+		long seed = 0;
+
+		for(int i = 0; i + 1 < args.length; i += 2) {
+			switch(args[i]) {
+				case "--algorithm":
+					aiName = AlgorithmName.valueOf(args[i + 1]);
+					break;
+				case "--agents":
+					agents = Integer.parseInt(args[i + 1]);
+					break;
+				case "--warmup":
+					warmup = Integer.parseInt(args[i + 1]);
+					break;
+				case "--ticks":
+					ticks = Integer.parseInt(args[i + 1]);
+					break;
+				case "--seed":
+					seed = Long.parseLong(args[i + 1]);
+					break;
+				default:
+					System.err.println("Unknown option " + args[i]);
+					System.exit(1);
+			}
+		}
+
+		Workers.setThreads(1);
+		MainGame.createLogs(aiName);
+		Simulation simulation = new Simulation(BLOCK_SIZE * WIDTH, BLOCK_SIZE * HEIGHT, agents,
+				aiName, new GameTextures(false), seed);
+
+		long thread = Thread.currentThread().getId();
+		long overhead = measureOverhead(thread);
+		long bytes = 0;
+		int measured = 0;
+		boolean firstStep = true;
+		for(int i = 0; measured < ticks; i++) {
+			if(simulation.areAllAgentsDead()) {
+				simulation.endGeneration();
+				simulation.nextGeneration();
+				firstStep = true;
+			} else if(i < warmup || firstStep) {
+				simulation.update(TIMESTEP);
+				firstStep = false;
+			} else {
+				long before = THREADS.getThreadAllocatedBytes(thread);
+				simulation.update(TIMESTEP);
+				long after = THREADS.getThreadAllocatedBytes(thread);
+				bytes += Math.max(0, after - before - overhead);
+				measured++;
+			}
+		}
+
+		System.out.println(String.format("%s, %d agents: %d bytes over %d steps (%.2f bytes/step)",
+				aiName, agents, bytes, measured, bytes / (double) measured));
+		MainGame.closeLogs();
+	}
+
+	/**
+	 * Returns the number of bytes reading the allocated bytes of a thread allocates itself.
+	 * @param thread The ID of the thread to read.
+	 * @return The fewest bytes seen between two reads in a row.
+	 */
+	private static long measureOverhead(long thread) {
+		long overhead = Long.MAX_VALUE;
+		for(int i = 0; i < 1000; i++) {
+			long before = THREADS.getThreadAllocatedBytes(thread);
+			long after = THREADS.getThreadAllocatedBytes(thread);
+			overhead = Math.min(overhead, after - before);
+		}
+		return overhead;
+	}
+}
@@ -0,0 +1,61 @@
+package com.mygdx.kittener.desktop;
+
+import AIinterfaces.Workers;
+import com.mygdx.kittener.remote.EvaluationWorker;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Starts an evaluation worker that plays out networks for a HeadlessLauncher started with
+ * --workers. Several workers can run on one host, each in its own process on its own port. A
+ * worker only listens on the loopback address unless --bind names another local address, as
+ * any host that can reach it can have it play out networks.
+ * Usage: EvaluationWorkerLauncher [--port N] [--bind ADDRESS] [--threads N]
+ */
+public class EvaluationWorkerLauncher {
+	/** The port a worker listens on unless told otherwise. */
+	private static final int DEFAULT_PORT = 7341;
+
+	/**
+	 * Driver for our application.
+	 * @param args Arguments for our application (if any).
+	 */
+	public static void main (String[] args) {
+		int port = DEFAULT_PORT;
+		InetAddress bindAddress = InetAddress.getLoopbackAddress();
+
+		for(int i = 0; i + 1 < args.length; i += 2) {
+			switch(args[i]) {
+				case "--port":
+					port = Integer.parseInt(args[i + 1]);
+					break;
+				case "--bind":
+					try {
+						bindAddress = InetAddress.getByName(args[i + 1]);
+					} catch(UnknownHostException e) {
+						System.err.println("Unknown bind address " + args[i + 1]);
+						System.exit(1);
+					}
+					break;
+				case "--threads":
+					Workers.setThreads(Integer.parseInt(args[i + 1]));
+					break;
+				default:
+					System.err.println("Unknown option " + args[i]);
+					System.exit(1);
+			}
+		}
+
+		try(EvaluationWorker worker = new EvaluationWorker(port, bindAddress)) {
+			System.out.println("Evaluation worker listening on " + bindAddress.getHostAddress()
+					+ " port " + worker.getPort());
+			worker.serve();
+		} catch(IOException e) {
+			System.err.println("ERROR: Unable to listen on " + bindAddress.getHostAddress()
+					+ " port " + port);
+			System.exit(1);
+		}
+	}
+}
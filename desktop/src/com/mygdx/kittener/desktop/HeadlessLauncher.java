@@ -0,0 +1,238 @@
+package com.mygdx.kittener.desktop;
+
+import AIinterfaces.AlgorithmName;
+import AIinterfaces.Workers;
+import com.mygdx.kittener.game.Archipelago;
+import com.mygdx.kittener.game.Checkpoint;
+import com.mygdx.kittener.game.GameTextures;
+import com.mygdx.kittener.game.MainGame;
+import com.mygdx.kittener.game.Simulation;
+import com.mygdx.kittener.remote.RemoteEvaluator;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Trains a population on the game of "Kittener" without opening a window. The game logic is
+ * stepped with a fixed timestep as fast as the CPU allows, so no display or graphics context is
+ * needed. With more than one island, that many populations evolve at once on their own threads
+ * and exchange their fittest networks every few generations; --threads then sets the workers each
+ * island shares, which is best left at 1 once there are as many islands as cores. With --workers,
+ * every generation is played out on the EvaluationWorkerLaunchers at the listed addresses instead.
+ * With --checkpoint, the population is saved to the file every --checkpoint-interval generations
+ * and after the last one, and --resume goes on from such a file until --generations generations
+ * are done in all, saving to the same file unless told otherwise.
+ * Usage: HeadlessLauncher [--algorithm NEAT|HyperNEAT] [--generations N] [--agents N]
+ *                         [--max-seconds S] [--threads N] [--seed N] [--islands N]
+ *                         [--migration-interval N] [--migrants N] [--workers HOST:PORT,...]
+ *                         [--checkpoint FILE] [--checkpoint-interval N] [--resume FILE]
+ */
+public class HeadlessLauncher {
+	/** The pixel height and height of a square block, representing a game tile. */
+	private static final int BLOCK_SIZE = 32;
+
+	/** The number of blocks our game will be wide. */
+	private static final int WIDTH = 16;
+
+	/** The number of blocks our game will be tall. */
+	private static final int HEIGHT = 12;
+
+	/** The game time that passes each step, matching one frame of the desktop launchers. */
+	private static final float TIMESTEP = 1 / 60f;
+
+	/**
+	 * Driver for our application.
+	 * @param args Arguments for our application (if any).
+	 */
+	public static void main (String[] args) {
+		AlgorithmName aiName = AlgorithmName.NEAT;
+		int generations = 100;
+		int agents = 30;
+		float maxSeconds = 120f;
+		long seed = new Random().nextLong();
+		int islands = 1;
+		int migrationInterval = 5;
+		int migrants = 2;
+		List<InetSocketAddress> workers = new ArrayList<>();
+		File checkpointFile = null;
+		int checkpointInterval = 10;
+		File resumeFile = null;
+
+		for(int i = 0; i + 1 < args.length; i += 2) {
+			switch(args[i]) {
+				case "--algorithm":
+					aiName = AlgorithmName.valueOf(args[i + 1]);
+					break;
+				case "--generations":
+					generations = Integer.parseInt(args[i + 1]);
+					break;
+				case "--agents":
+					agents = Integer.parseInt(args[i + 1]);
+					break;
+				case "--max-seconds":
+					maxSeconds = Float.parseFloat(args[i + 1]);
+					break;
+				case "--threads":
+					Workers.setThreads(Integer.parseInt(args[i + 1]));
+					break;
+				case "--seed":
+					seed = Long.parseLong(args[i + 1]);
+					break;
+				case "--islands":
+					islands = Integer.parseInt(args[i + 1]);
+					break;
+				case "--migration-interval":
+					migrationInterval = Integer.parseInt(args[i + 1]);
+					break;
+				case "--migrants":
+					migrants = Integer.parseInt(args[i + 1]);
+					break;
+				case "--workers":
+					for(String worker : args[i + 1].split(",")) {
+						int colon = worker.lastIndexOf(':');
+						workers.add(new InetSocketAddress(worker.substring(0, colon),
+								Integer.parseInt(worker.substring(colon + 1))));
+					}
+					break;
+				case "--checkpoint":
+					checkpointFile = new File(args[i + 1]);
+					break;
+				case "--checkpoint-interval":
+					checkpointInterval = Integer.parseInt(args[i + 1]);
+					break;
+				case "--resume":
+					resumeFile = new File(args[i + 1]);
+					break;
+				default:
+					System.err.println("Unknown option " + args[i]);
+					System.exit(1);
+			}
+		}
+
+		if(!aiName.hasNetworkPopulation() && (islands > 1 || !workers.isEmpty()
+				|| checkpointFile != null || resumeFile != null)) {
+			System.err.println("--islands, --workers, --checkpoint and --resume can not be used with "
+					+ aiName);
+			System.exit(1);
+		}
+		if(islands > 1 && !workers.isEmpty()) {
+			System.err.println("--workers can not be combined with --islands");
+			System.exit(1);
+		}
+		if(islands > 1 && (checkpointFile != null || resumeFile != null)) {
+			System.err.println("--checkpoint and --resume can not be combined with --islands");
+			System.exit(1);
+		}
+		if(islands > 1) {
+			System.out.println("Seed " + seed);
+			runIslands(aiName, generations, agents, maxSeconds, seed, islands, migrationInterval,
+					migrants);
+			return;
+		}
+
+		Simulation simulation;
+		if(resumeFile == null) {
+			System.out.println("Seed " + seed);
+			MainGame.createLogs(aiName);
+			simulation = new Simulation(BLOCK_SIZE * WIDTH, BLOCK_SIZE * HEIGHT, agents, aiName,
+					new GameTextures(false), seed);
+		} else {
+			simulation = resume(resumeFile);
+			if(checkpointFile == null) {
+				checkpointFile = resumeFile;
+			}
+		}
+		Checkpoint checkpoint = checkpointFile == null ? null : new Checkpoint(checkpointFile);
+
+		RemoteEvaluator evaluator = null;
+		if(!workers.isEmpty()) {
+			try {
+				evaluator = new RemoteEvaluator(workers);
+			} catch(IOException e) {
+				System.err.println("ERROR: " + e.getMessage());
+				System.exit(1);
+			}
+		}
+
+		for(int i = simulation.getPopulation().getGeneration(); i < generations; i++) {
+			long start = System.nanoTime();
+			int highScore = evaluator == null ? simulation.runGeneration(TIMESTEP, maxSeconds)
+					: simulation.runGeneration(evaluator, TIMESTEP, maxSeconds);
+			long millis = (System.nanoTime() - start) / 1000000;
+			System.out.println(String.format("Generation %d: high score %d, overall %d (%d ms)",
+					i, highScore, simulation.getHighestOverallScore(), millis));
+			if(checkpoint != null && ((i + 1) % checkpointInterval == 0 || i + 1 == generations)) {
+				try {
+					checkpoint.save(simulation);
+				} catch(IOException e) {
+					System.err.println("ERROR: Unable to save checkpoint to "
+							+ checkpoint.getFile());
+				}
+			}
+		}
+		if(evaluator != null) {
+			evaluator.close();
+		}
+		if(checkpoint != null) {
+			checkpoint.close();
+		}
+		MainGame.closeLogs();
+	}
+
+	/**
+	 * Reads a simulation back from a checkpoint and opens new statistics logs for its algorithm,
+	 * which go on from the generation it was saved at.
+	 * @param file The file of the checkpoint.
+	 * @return The simulation saved in the checkpoint.
+	 */
+	private static Simulation resume(File file) {
+		Simulation simulation = null;
+		try {
+			simulation = Checkpoint.load(file, BLOCK_SIZE * WIDTH, BLOCK_SIZE * HEIGHT,
+					new GameTextures(false));
+		} catch(IOException e) {
+			System.err.println("ERROR: Unable to resume from checkpoint: " + e.getMessage());
+			System.exit(1);
+		}
+		MainGame.createLogs(simulation.getAlgorithmName());
+		simulation.getPopulation().setStatistics(MainGame.STATS);
+		System.out.println("Resuming " + simulation.getAlgorithmName() + " at generation "
+				+ simulation.getPopulation().getGeneration());
+		return simulation;
+	}
+
+	/**
+	 * Trains several islands at once, each with its own population, and prints the high scores of
+	 * every island after each generation.
+	 * @param aiName The algorithm the populations should use.
+	 * @param generations The number of generations to train for.
+	 * @param agents The number of agents on each island.
+	 * @param maxSeconds The most game time a single generation may take.
+	 * @param seed The seed the seeds of the islands are drawn from.
+	 * @param islands The number of islands.
+	 * @param migrationInterval The number of generations between two migrations.
+	 * @param migrants The number of networks each island sends on a migration.
+	 */
+	private static void runIslands(AlgorithmName aiName, int generations, int agents,
+			float maxSeconds, long seed, int islands, int migrationInterval, int migrants) {
+		try(Archipelago archipelago = new Archipelago(BLOCK_SIZE * WIDTH, BLOCK_SIZE * HEIGHT,
+				agents, aiName, new GameTextures(false), seed, islands, migrationInterval,
+				migrants)) {
+			for(int i = 0; i < generations; i++) {
+				long start = System.nanoTime();
+				int[] highScores = archipelago.runGeneration(TIMESTEP, maxSeconds);
+				long millis = (System.nanoTime() - start) / 1000000;
+				System.out.println(String.format("Generation %d: high scores %s, overall %d (%d ms)",
+						i, Arrays.toString(highScores), archipelago.getHighestOverallScore(), millis));
+			}
+		} catch(IOException e) {
+			System.err.println("ERROR: Unable to create the island logs");
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package benchmarks;
+
+import hyperneat.CPPN;
+import hyperneat.Substrate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the two halves of running a HyperNEAT organism: generating the substrate weights from
+ * the CPPN, which happens once for every new organism, and feeding the substrate forward, which
+ * happens every step.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CppnBenchmark {
+
+    /** The number of nodes along each side of a substrate layer. */
+    private static final int SUBSTRATE_SIZE = 11;
+
+    /** The number of hidden nodes of the CPPN network. */
+    @Param({"0", "10", "50"})
+    public int hiddenNodes;
+
+    /** The CPPN being measured. */
+    private CPPN cppn;
+
+    /** A substrate with seeded weights. */
+    private Substrate substrate;
+
+    /** What the agent of the organism can see. */
+    private float[] vision;
+
+    /** The array the outputs of the organism are written to. */
+    private double[] output;
+
+    /** Grows the CPPN and fills the substrate from their seeds. */
+    @Setup
+    public void setUp() {
+        cppn = Genomes.cppn(hiddenNodes, 1);
+        vision = Genomes.vision(3);
+        output = new double[Genomes.OUTPUTS];
+
+        Random random = new Random(4);
+        double[] weights = new double[(int) Math.pow(SUBSTRATE_SIZE, 4)];
+        for(int i = 0; i < weights.length; i++) {
+            weights[i] = random.nextDouble() * 2 - 1;
+        }
+        substrate = new Substrate(Genomes.INPUTS, Genomes.OUTPUTS, SUBSTRATE_SIZE, random);
+        substrate.setLinkWeights(weights);
+    }
+
+    /**
+     * Copies the CPPN and runs the copy once, which generates the substrate weights from its
+     * network before feeding the substrate forward.
+     * @return The output array.
+     */
+    @Benchmark
+    public double[] generateSubstrate() {
+        cppn.clone().runSubstrate(vision, output);
+        return output;
+    }
+
+    /**
+     * Feeds the substrate forward into the output array.
+     * @return The output array.
+     */
+    @Benchmark
+    public double[] substrateFeedForward() {
+        substrate.feedForward(vision, output);
+        return output;
+    }
+}
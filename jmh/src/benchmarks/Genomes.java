@@ -0,0 +1,157 @@
+package benchmarks;
+
+import AIinterfaces.InnovationRegistry;
+import AIinterfaces.LinkIF;
+import AIinterfaces.MetricsSink;
+import AIinterfaces.NetworkIF.NetworkIF;
+import AIinterfaces.NodeIF.NEATNodeIF;
+import AIinterfaces.RandomSource;
+import AIinterfaces.ReusedCode;
+import com.mygdx.kittener.game.Agent;
+import com.mygdx.kittener.game.MainGame;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds the genomes, agents and inputs the benchmarks run on. Every genome is grown from a seed,
+ * so the same seed always gives a network with the same nodes, links and weights. The seed also
+ * becomes the current random stream of the thread, so the mutations a benchmark makes afterwards
+ * are the same on every run.
+ */
+public class Genomes {
+
+    /** The number of inputs of a network, one for every hazard in the game. */
+    public static final int INPUTS = 11;
+
+    /** The number of outputs of a network, one for every direction an agent can move in. */
+    public static final int OUTPUTS = 5;
+
+    /**
+     * The innovation numbers of the links of every genome, shared like those of a population so
+     * the genomes can be compared and crossed over.
+     */
+    private static final InnovationRegistry INNOVATIONS = new InnovationRegistry();
+
+    /**
+     * Grows a NEAT network from a seed.
+     * @param hiddenNodes The number of hidden nodes to add.
+     * @param seed The seed to grow the network from.
+     * @return The grown network.
+     */
+    public static neat.Network neat(int hiddenNodes, long seed) {
+        Random random = new Random(seed);
+        RandomSource.use(random);
+        neat.Network network = new neat.Network(INPUTS, OUTPUTS, INNOVATIONS);
+        grow(network, hiddenNodes, random);
+        return network;
+    }
+
+    /**
+     * Makes a CPPN and grows its network from a seed. The substrate of the CPPN is only generated
+     * once it is first run.
+     * @param hiddenNodes The number of hidden nodes to add.
+     * @param seed The seed to grow the network from.
+     * @return The CPPN with the grown network.
+     */
+    public static hyperneat.CPPN cppn(int hiddenNodes, long seed) {
+        Random random = new Random(seed);
+        RandomSource.use(random);
+        hyperneat.CPPN cppn = new hyperneat.CPPN(INPUTS, OUTPUTS, INNOVATIONS);
+        grow(cppn.getCPPNetwork(), hiddenNodes, random);
+        return cppn;
+    }
+
+    /**
+     * Adds hidden nodes where random links used to be, adds as many random links again and then
+     * gives every link a random weight.
+     * @param network The network to grow.
+     * @param hiddenNodes The number of hidden nodes to add.
+     * @param random The random numbers to grow the network with.
+     */
+    private static void grow(NetworkIF network, int hiddenNodes, Random random) {
+        for(int i = 0; i < hiddenNodes; i++) {
+            List<LinkIF> links = network.getLinks();
+            LinkIF link;
+            do {
+                link = links.get(random.nextInt(links.size()));
+            } while(link.getInputNodeID() == network.getBiasNode().getId() || !link.isEnabled());
+            if(network instanceof neat.Network) {
+                ((neat.Network) network).addNode(link);
+            } else {
+                ((hyperneat.Network) network).addNode(link);
+            }
+        }
+
+        for(int i = 0; i < hiddenNodes; i++) {
+            List<NEATNodeIF> nodes = network.getNodesByLayer();
+            NEATNodeIF input = nodes.get(random.nextInt(nodes.size()));
+            NEATNodeIF output = nodes.get(random.nextInt(nodes.size()));
+            if(!network.isBadLink(input, output)) {
+                if(output.getLayer() < input.getLayer()) {
+                    NEATNodeIF temp = input;
+                    input = output;
+                    output = temp;
+                }
+                ReusedCode.addLink(network, input, output, 0);
+            }
+        }
+
+        // A HyperNEAT network keeps each link twice, once in its list of links and once in the
+        // outgoing links of its input node, so both copies are given the same weight. Both are
+        // views of the same gene in a NEAT network.
+        for(NEATNodeIF node : network.getNodesByLayer()) {
+            for(LinkIF outgoing : node.getOutgoingLinks()) {
+                double weight = random.nextDouble() * 2 - 1;
+                outgoing.setWeight(weight);
+                List<LinkIF> links = network.getLinks();
+                links.get(ReusedCode.findLink(links, outgoing.getInnovationNum())).setWeight(weight);
+            }
+        }
+    }
+
+    /**
+     * Returns the vision of an agent standing somewhere in the game, seen from a seed.
+     * @param seed The seed to place the hazards with.
+     * @return The distances between the agent and every hazard.
+     */
+    public static float[] vision(long seed) {
+        Random random = new Random(seed);
+        float[] vision = new float[INPUTS];
+        for(int i = 0; i < vision.length; i++) {
+            vision[i] = random.nextFloat() * 16;
+        }
+        return vision;
+    }
+
+    /**
+     * Makes the supplied number of agents without any textures.
+     * @param count The number of agents to make.
+     * @return The list of agents.
+     */
+    public static List<Agent> agents(int count) {
+        List<Agent> agents = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            agents.add(new Agent(i, null, INPUTS, 0));
+        }
+        return agents;
+    }
+
+    /**
+     * Points the statistics log of the populations at a temporary file, so the benchmarks can
+     * run natural selection without the game having set up its logs.
+     */
+    public static void useTemporaryLogs() {
+        MainGame.closeLogs();
+        try {
+            MainGame.STAT_LOG = File.createTempFile("benchmark", ".csv");
+            MainGame.STAT_LOG.deleteOnExit();
+            MainGame.STATS = new MetricsSink(MainGame.STAT_LOG);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to create a statistics log", e);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package benchmarks;
+
+import AIinterfaces.ReusedCode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the operations on a single NEAT network: feeding it forward, copying and mutating it,
+ * comparing it against another network and crossing two networks over. Each operation runs on
+ * networks of several sizes, all grown from fixed seeds.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NetworkBenchmark {
+
+    /** The number of hidden nodes of the networks. */
+    @Param({"0", "20", "100"})
+    public int hiddenNodes;
+
+    /** The network being measured. */
+    private neat.Network network;
+
+    /** A second network to compare against and cross over with. */
+    private neat.Network other;
+
+    /** What the agent of the network can see. */
+    private float[] vision;
+
+    /** The array the outputs of the network are written to. */
+    private double[] output;
+
+    /** Grows both networks and the vision from their seeds. */
+    @Setup
+    public void setUp() {
+        network = Genomes.neat(hiddenNodes, 1);
+        other = Genomes.neat(hiddenNodes, 2);
+        vision = Genomes.vision(3);
+        output = new double[Genomes.OUTPUTS];
+    }
+
+    /**
+     * Feeds the network forward into the output array.
+     * @return The output array.
+     */
+    @Benchmark
+    public double[] feedForward() {
+        network.feedForward(vision, output);
+        return output;
+    }
+
+    /**
+     * Copies the network without changing the copy, as natural selection does for the champion of
+     * every species and its compatibility network.
+     * @return The copy.
+     */
+    @Benchmark
+    public neat.Network copy() {
+        return new neat.Network(network);
+    }
+
+    /**
+     * Copies the network and mutates the copy, as a species does for a baby without crossover.
+     * @return The mutated copy.
+     */
+    @Benchmark
+    public neat.Network copyAndMutate() {
+        neat.Network baby = new neat.Network(network);
+        baby.mutate();
+        return baby;
+    }
+
+    /**
+     * Works out how far apart the two networks are.
+     * @return The compatibility distance of the two networks.
+     */
+    @Benchmark
+    public double compatibilityDistance() {
+        return ReusedCode.getCompatibilityDistance(other, network);
+    }
+
+    /**
+     * Works out whether the two networks belong to the same species.
+     * @return Whether the two networks are compatible.
+     */
+    @Benchmark
+    public boolean isCompatibleTo() {
+        return ReusedCode.isCompatibleTo(other, network);
+    }
+
+    /**
+     * Crosses the two networks over into a baby.
+     * @return The baby of the two networks.
+     */
+    @Benchmark
+    public Object crossover() {
+        return ReusedCode.crossover(other, network);
+    }
+}
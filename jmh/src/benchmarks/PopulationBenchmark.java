@@ -0,0 +1,71 @@
+package benchmarks;
+
+import com.mygdx.kittener.game.Agent;
+import neat.Population;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a whole round of natural selection of a NEAT population, from speciation through
+ * culling to reproduction. Natural selection replaces every network of the population, so the
+ * population is built again and given its fitnesses before every call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PopulationBenchmark {
+
+    /** The number of organisms in the population. */
+    @Param({"30", "300", "3000"})
+    public int organisms;
+
+    /** The agents of the population. */
+    private List<Agent> agents;
+
+    /** The population being measured. */
+    private Population population;
+
+    /** Makes the agents and the statistics log. */
+    @Setup(Level.Trial)
+    public void setUpAgents() {
+        Genomes.useTemporaryLogs();
+        agents = Genomes.agents(organisms);
+    }
+
+    /** Builds a new population and gives every organism a fitness picked from a seed. */
+    @Setup(Level.Invocation)
+    public void setUpPopulation() {
+        population = new Population(agents, Genomes.INPUTS, Genomes.OUTPUTS, 7);
+        Random random = new Random(6);
+        for(Agent agent : agents) {
+            population.assignFitness(agent.getId(), random.nextInt(1000));
+        }
+    }
+
+    /**
+     * Runs natural selection on the population.
+     * @return The population after natural selection.
+     */
+    @Benchmark
+    public Population naturalSelection() {
+        population.naturalSelection();
+        return population;
+    }
+}
@@ -0,0 +1,79 @@
+package benchmarks;
+
+import neat.Species;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures culling a NEAT species down to its best organisms. Culling replaces the organisms of
+ * the species, so the species is built again before every call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpeciesBenchmark {
+
+    /** The number of organisms in the species. */
+    @Param({"10", "100", "1000"})
+    public int organisms;
+
+    /** The networks of the organisms, grown once from their seeds. */
+    private neat.Network[] networks;
+
+    /** The fitness of each organism. */
+    private int[] fitnesses;
+
+    /** The species being measured. */
+    private Species species;
+
+    /** Grows the networks and picks the fitness of each organism from their seeds. */
+    @Setup(Level.Trial)
+    public void setUpNetworks() {
+        Random random = new Random(5);
+        networks = new neat.Network[organisms];
+        fitnesses = new int[organisms];
+        for(int i = 0; i < organisms; i++) {
+            networks[i] = Genomes.neat(5, i);
+            fitnesses[i] = random.nextInt(1000);
+        }
+    }
+
+    /** Puts every organism back in a new species with its original fitness. */
+    @Setup(Level.Invocation)
+    public void setUpSpecies() {
+        for(int i = 0; i < organisms; i++) {
+            networks[i].setFitness(fitnesses[i]);
+        }
+        species = new Species(0, networks[0], new ArrayList<>());
+        for(int i = 1; i < organisms; i++) {
+            species.addOrganism(i, networks[i]);
+        }
+    }
+
+    /**
+     * Culls the species.
+     * @return The culled species.
+     */
+    @Benchmark
+    public Species cull() {
+        species.cull();
+        return species;
+    }
+}